@@ -0,0 +1,74 @@
+package de.unijena.DNAGraphUtils.benchmarks;
+
+import de.unijena.DNAGraphUtils.Graph;
+import de.unijena.DNAGraphUtils.GraphEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of every {@link GraphEncoding}. The primary score is graphs per second,
+ * the secondary score "edges" is edges per second.
+ * Run {@code java -jar benchmarks/target/benchmarks.jar EncodingBenchmark -prof gc} to also measure
+ * the allocation rate, parameters can be narrowed with e.g. {@code -p encoding=HuffmanGraphEncoding}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+    @Param({"SumGraphEncoding", "FixedLengthGraphEncoding", "HuffmanGraphEncoding", "NaturalGraphEncoding"})
+    public String encoding;
+
+    @Param({"64", "1024", "8192"})
+    public int vertices;
+
+    @Param({"1", "4"})
+    public int edgesPerVertex;
+
+    @Param({"uniform", "gaussian", "barabasi-albert", "rmat"})
+    public String distribution;
+
+    @Param({"false"})
+    public boolean preserveOrder;
+
+    private GraphEncoding code;
+    private Graph graph;
+    private String sequence;
+
+    /**
+     * Counts the processed edges, JMH reports them as rate next to the graphs per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class EdgeCounter {
+        public long edges;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            edges = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        code = Fixtures.createEncoding(encoding);
+        graph = Fixtures.createGraph(distribution, vertices, edgesPerVertex, Fixtures.SEED);
+        sequence = code.toString(graph, preserveOrder);
+    }
+
+    @Benchmark
+    public String encode(EdgeCounter counter) {
+        counter.edges += graph.getEdgeCount();
+        return code.toString(graph, preserveOrder);
+    }
+
+    @Benchmark
+    public Graph decode(EdgeCounter counter) {
+        Graph decoded = new Graph(sequence, code);
+        counter.edges += decoded.getEdgeCount();
+        return decoded;
+    }
+}
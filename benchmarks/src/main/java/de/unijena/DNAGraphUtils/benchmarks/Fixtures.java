@@ -0,0 +1,63 @@
+package de.unijena.DNAGraphUtils.benchmarks;
+
+import de.unijena.DNAGraphUtils.*;
+
+import java.util.Random;
+
+/**
+ * Graphs and encodings shared by the benchmarks. The graphs are created by {@link GraphBenchmark} with fixed
+ * seeds, so every run and every fork measures the same graphs.
+ */
+final class Fixtures {
+    static final long SEED = 2;
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param distribution "uniform", "gaussian" (mean in the middle, standard deviation a tenth of the vertices),
+     *                     "barabasi-albert" (preferential attachment) or "rmat" (vertices must be a power of 2)
+     * @param vertices count of vertices
+     * @param edgesPerVertex count of edges per vertex
+     * @param seed seed of the random vertex selection
+     * @return a random graph
+     */
+    static Graph createGraph(String distribution, int vertices, int edgesPerVertex, long seed) {
+        Random rand = new Random(seed);
+        int edges = vertices * edgesPerVertex;
+        switch (distribution) {
+            case "uniform":
+                return GraphBenchmark.createGraph(vertices, edges, rand);
+            case "gaussian":
+                return GraphBenchmark.createGraph(vertices, edges, vertices / 2.0, vertices / 10.0, rand);
+            case "barabasi-albert":
+                return GraphGenerator.createBarabasiAlbertGraph(vertices, edgesPerVertex, seed);
+            case "rmat":
+                if (Integer.bitCount(vertices) != 1)
+                    throw new IllegalArgumentException("R-MAT graphs need a power of 2 as vertex count");
+                return GraphGenerator.createRMatGraph(Integer.numberOfTrailingZeros(vertices), edges, 0.57, 0.19, 0.19,
+                        seed);
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+    }
+
+    /**
+     * @param name simple class name of an {@link GraphEncoding} implementation
+     * @return a new instance of the encoding
+     */
+    static GraphEncoding createEncoding(String name) {
+        switch (name) {
+            case "SumGraphEncoding":
+                return new SumGraphEncoding();
+            case "FixedLengthGraphEncoding":
+                return new FixedLengthGraphEncoding();
+            case "HuffmanGraphEncoding":
+                return new HuffmanGraphEncoding();
+            case "NaturalGraphEncoding":
+                return new NaturalGraphEncoding();
+            default:
+                throw new IllegalArgumentException("Unknown encoding " + name);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.unijena.DNAGraphUtils.benchmarks;
+
+import de.unijena.DNAGraphUtils.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link Graph#isIsomorphicTo(Graph)} for a graph and a randomly relabeled copy of it
+ * (the full search has to succeed) and for a copy with one edge moved (the search has to fail).
+ * The setup checks both outcomes, an edge move which yields an isomorphic graph is replaced by another one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IsomorphismBenchmark {
+    // edge moves tried before the setup gives up
+    private static final int MAX_MOVE_ATTEMPTS = 1000;
+
+    @Param({"64", "1024", "8192"})
+    public int vertices;
+
+    @Param({"1", "4"})
+    public int edgesPerVertex;
+
+    @Param({"uniform", "gaussian", "barabasi-albert", "rmat"})
+    public String distribution;
+
+    private Graph graph;
+    private Graph relabeled;
+    private Graph modified;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = Fixtures.createGraph(distribution, vertices, edgesPerVertex, Fixtures.SEED);
+        Random rand = new Random(Fixtures.SEED + 1);
+        int[] permutation = new int[vertices];
+        for (int i = 0; i < vertices; i++) {
+            int j = rand.nextInt(i + 1);
+            permutation[i] = permutation[j];
+            permutation[j] = i;
+        }
+        relabeled = relabel(graph, permutation, -1, 0);
+        if (!graph.isIsomorphicTo(relabeled))
+            throw new IllegalStateException("Relabeled graph is not isomorphic");
+        // moving an edge of a symmetric graph or a parallel edge can yield an isomorphic graph again
+        for (int attempt = 0; ; attempt++) {
+            if (attempt == MAX_MOVE_ATTEMPTS)
+                throw new IllegalStateException("No edge move yields a non-isomorphic graph");
+            modified = relabel(graph, permutation, rand.nextInt(graph.getEdgeCount()), rand.nextInt(vertices));
+            if (!graph.isIsomorphicTo(modified))
+                break;
+        }
+    }
+
+    /**
+     * @param graph a {@link Graph} object with the vertices 0 to n - 1
+     * @param permutation new name of every vertex
+     * @param movedEdge index of an edge whose target is replaced or -1
+     * @param newTarget new target of the moved edge (before relabeling)
+     * @return the relabeled graph with the edges in the same order
+     */
+    private static Graph relabel(Graph graph, int[] permutation, int movedEdge, int newTarget) {
+        int[] verts = new int[graph.getVertexCount()];
+        for (int i = 0; i < verts.length; i++) {
+            verts[i] = i;
+        }
+        int[] sources = new int[graph.getEdgeCount()];
+        int[] targets = new int[graph.getEdgeCount()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = permutation[graph.getEdgeSource(i)];
+            int target = i == movedEdge ? newTarget : graph.getEdgeTarget(i);
+            if (i == movedEdge && target == graph.getEdgeTarget(i))
+                target = (target + 1) % verts.length;
+            targets[i] = permutation[target];
+        }
+        return new Graph(verts, sources, targets);
+    }
+
+    @Benchmark
+    public boolean isomorphic() {
+        return graph.isIsomorphicTo(relabeled);
+    }
+
+    @Benchmark
+    public boolean nonIsomorphic() {
+        return graph.isIsomorphicTo(modified);
+    }
+}
@@ -15,6 +15,7 @@ public class Main {
         System.out.println(GraphBenchmark.testIsomorphismPreservation(new SumGraphEncoding()));
         System.out.println(GraphBenchmark.testIsomorphismPreservation(new FixedLengthGraphEncoding()));
         System.out.println(GraphBenchmark.testIsomorphismPreservation(new HuffmanGraphEncoding()));
+        System.out.println(GraphBenchmark.testMetricsLengths(new SumGraphEncoding(), new Random(1)));
 
         GraphEncoding[] encodings = {new SumGraphEncoding(), new FixedLengthGraphEncoding(), new HuffmanGraphEncoding()};
         Random rand = new Random();
@@ -0,0 +1,171 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row index over the edges of a {@link Graph}.
+ * Vertices are addressed by their position in the vertex list of the graph, not by their value.
+ * The neighbours of every vertex are sorted ascending, parallel edges occur multiple times.
+ */
+public class AdjacencyIndex {
+    private final int vertexCount;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    /**
+     * Builds the index for the current vertices and edges of a graph.
+     *
+     * @param graph a {@link Graph} object
+     */
+    public AdjacencyIndex(Graph graph) {
+        vertexCount = graph.getVertexCount();
+        int edgeCount = graph.getEdgeCount();
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = toPosition(graph, graph.getEdgeSource(i));
+            targets[i] = toPosition(graph, graph.getEdgeTarget(i));
+        }
+
+        outOffsets = new int[vertexCount + 1];
+        outTargets = new int[edgeCount];
+        inOffsets = new int[vertexCount + 1];
+        inSources = new int[edgeCount];
+        fill(sources, targets, outOffsets, outTargets);
+        fill(targets, sources, inOffsets, inSources);
+    }
+
+    /**
+     * Translates a vertex to its position in the vertex list.
+     *
+     * @param graph a {@link Graph} object
+     * @param vert vertex used in an edge
+     * @return position of the vertex
+     */
+    private static int toPosition(Graph graph, int vert) {
+        int position = graph.getVertexPosition(vert);
+        if (position < 0)
+            throw new IllegalStateException("Edge references vertex " + vert + " which is not part of the graph");
+        return position;
+    }
+
+    /**
+     * Counting sort of the edges by their row vertex, afterwards every row is sorted.
+     *
+     * @param rows row vertex of every edge
+     * @param columns column vertex of every edge
+     * @param offsets array which will be filled with the start of every row
+     * @param neighbours array which will be filled with the columns ordered by row
+     */
+    private static void fill(int[] rows, int[] columns, int[] offsets, int[] neighbours) {
+        for (int row : rows) {
+            ++offsets[row + 1];
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < rows.length; i++) {
+            neighbours[next[rows[i]]++] = columns[i];
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            Arrays.sort(neighbours, offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * @return count of vertices in the index
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @param vert position of the vertex
+     * @return count of edges starting at the vertex
+     */
+    public int getOutDegree(int vert) {
+        return outOffsets[vert + 1] - outOffsets[vert];
+    }
+
+    /**
+     * @param vert position of the vertex
+     * @return count of edges ending at the vertex
+     */
+    public int getInDegree(int vert) {
+        return inOffsets[vert + 1] - inOffsets[vert];
+    }
+
+    /**
+     * The out neighbours of vertex v are stored in {@link #getOutTargets()} from offsets[v] to offsets[v + 1].
+     * The array must not be modified.
+     *
+     * @return row offsets of the out neighbours, length is vertex count + 1
+     */
+    public int[] getOutOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * The array must not be modified.
+     *
+     * @return target positions of all edges ordered by their source
+     */
+    public int[] getOutTargets() {
+        return outTargets;
+    }
+
+    /**
+     * The in neighbours of vertex v are stored in {@link #getInSources()} from offsets[v] to offsets[v + 1].
+     * The array must not be modified.
+     *
+     * @return row offsets of the in neighbours, length is vertex count + 1
+     */
+    public int[] getInOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * The array must not be modified.
+     *
+     * @return source positions of all edges ordered by their target
+     */
+    public int[] getInSources() {
+        return inSources;
+    }
+
+    /**
+     * Counts the parallel edges between two vertices with a binary search in the row of the source.
+     *
+     * @param source position of the first vertex
+     * @param target position of the second vertex
+     * @return count of edges from source to target
+     */
+    public int countEdges(int source, int target) {
+        int from = outOffsets[source], to = outOffsets[source + 1];
+        int first = lowerBound(outTargets, from, to, target);
+        return lowerBound(outTargets, first, to, target + 1) - first;
+    }
+
+    /**
+     * @param arr sorted array
+     * @param from first index of the range (inclusive)
+     * @param to last index of the range (exclusive)
+     * @param key searched value
+     * @return first index in the range whose value is not smaller than the key
+     */
+    private static int lowerBound(int[] arr, int from, int to, int key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (arr[mid] < key)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+}
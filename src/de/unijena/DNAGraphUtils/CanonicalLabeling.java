@@ -0,0 +1,700 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes a canonical labeling of a directed multigraph by individualization and refinement.
+ * Every weakly connected component is labeled on its own, the components are then ordered by their size and
+ * canonical edge lists. Within a component the vertices are split into an ordered equitable partition.
+ * As long as a cell contains more than one vertex, every vertex of that cell is individualized in turn
+ * and the partition is refined again. Every discrete partition
+ * (a leaf of the search tree) defines a labeling, the labeling with the smallest sorted edge list is canonical.
+ * Leaves with equal edge lists reveal automorphisms, which are used to skip equivalent subtrees.
+ * Isomorphic graphs always get identical canonical forms.
+ */
+class CanonicalLabeling {
+    private final int[] labeling;
+    private final long[] certificate;
+
+    /**
+     * Computes the canonical labeling of a graph.
+     *
+     * @param graph index of the graph
+     */
+    CanonicalLabeling(AdjacencyIndex graph) {
+        int vertexCount = graph.getVertexCount();
+        int[] component = new int[vertexCount];
+        List<int[]> components = findComponents(graph, component);
+
+        int[] localPosition = new int[vertexCount];
+        List<Search> searches = new ArrayList<>();
+        for (int[] vertices : components) {
+            for (int i = 0; i < vertices.length; i++) {
+                localPosition[vertices[i]] = i;
+            }
+            searches.add(new Search(createComponentIndex(graph, vertices, localPosition)));
+        }
+
+        Integer[] order = new Integer[components.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (c1, c2) -> compareComponents(components.get(c1), searches.get(c1).bestCertificate,
+                components.get(c2), searches.get(c2).bestCertificate));
+
+        labeling = new int[vertexCount];
+        int offset = 0;
+        for (int c : order) {
+            int[] vertices = components.get(c);
+            int[] localLabeling = searches.get(c).bestLabeling;
+            for (int i = 0; i < vertices.length; i++) {
+                labeling[vertices[i]] = offset + localLabeling[i];
+            }
+            offset += vertices.length;
+        }
+        certificate = computeCertificate(graph, labeling);
+    }
+
+    /**
+     * @return canonical label (0 to vertex count - 1) of every vertex position
+     */
+    int[] getLabeling() {
+        return labeling.clone();
+    }
+
+    /**
+     * @return all edges under the canonical labeling, encoded as source * vertex count + target and sorted
+     */
+    long[] getCertificate() {
+        return certificate.clone();
+    }
+
+    /**
+     * Finds the weakly connected components with a breadth first search.
+     *
+     * @param graph index of the graph
+     * @param component array which will be filled with the component number of every vertex
+     * @return the vertices of every component
+     */
+    private static List<int[]> findComponents(AdjacencyIndex graph, int[] component) {
+        int vertexCount = graph.getVertexCount();
+        int[] outOffsets = graph.getOutOffsets(), outTargets = graph.getOutTargets();
+        int[] inOffsets = graph.getInOffsets(), inSources = graph.getInSources();
+        Arrays.fill(component, -1);
+        int[] queue = new int[vertexCount];
+        List<int[]> components = new ArrayList<>();
+
+        for (int root = 0; root < vertexCount; root++) {
+            if (component[root] >= 0)
+                continue;
+            int head = 0, tail = 0;
+            component[root] = components.size();
+            queue[tail++] = root;
+            while (head < tail) {
+                int vert = queue[head++];
+                for (int i = outOffsets[vert]; i < outOffsets[vert + 1]; i++) {
+                    if (component[outTargets[i]] < 0) {
+                        component[outTargets[i]] = components.size();
+                        queue[tail++] = outTargets[i];
+                    }
+                }
+                for (int i = inOffsets[vert]; i < inOffsets[vert + 1]; i++) {
+                    if (component[inSources[i]] < 0) {
+                        component[inSources[i]] = components.size();
+                        queue[tail++] = inSources[i];
+                    }
+                }
+            }
+            components.add(Arrays.copyOf(queue, tail));
+        }
+        return components;
+    }
+
+    /**
+     * Builds the index of the subgraph induced by one component.
+     *
+     * @param graph index of the graph
+     * @param vertices vertices of the component
+     * @param localPosition position of every vertex of the component within the component
+     * @return index of the component with the positions 0 to vertices.length - 1
+     */
+    private static AdjacencyIndex createComponentIndex(AdjacencyIndex graph, int[] vertices, int[] localPosition) {
+        int[] outOffsets = graph.getOutOffsets(), outTargets = graph.getOutTargets();
+        int edgeCount = 0;
+        for (int vert : vertices) {
+            edgeCount += outOffsets[vert + 1] - outOffsets[vert];
+        }
+
+        int[] localVertices = new int[vertices.length];
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int edge = 0;
+        for (int i = 0; i < vertices.length; i++) {
+            localVertices[i] = i;
+            for (int j = outOffsets[vertices[i]]; j < outOffsets[vertices[i] + 1]; j++) {
+                sources[edge] = i;
+                targets[edge++] = localPosition[outTargets[j]];
+            }
+        }
+        return new AdjacencyIndex(new Graph(localVertices, sources, targets));
+    }
+
+    /**
+     * Orders components by their vertex count, their edge count and their canonical edge lists.
+     *
+     * @param vertices1 vertices of the first component
+     * @param certificate1 canonical edges of the first component
+     * @param vertices2 vertices of the second component
+     * @param certificate2 canonical edges of the second component
+     * @return negative, zero or positive like {@link Comparable#compareTo(Object)}
+     */
+    private static int compareComponents(int[] vertices1, long[] certificate1, int[] vertices2, long[] certificate2) {
+        if (vertices1.length != vertices2.length)
+            return Integer.compare(vertices1.length, vertices2.length);
+        if (certificate1.length != certificate2.length)
+            return Integer.compare(certificate1.length, certificate2.length);
+        return compare(certificate1, certificate2);
+    }
+
+    /**
+     * @param graph index of a graph
+     * @param labeling label of every vertex position
+     * @return sorted edges under the labeling
+     */
+    private static long[] computeCertificate(AdjacencyIndex graph, int[] labeling) {
+        int vertexCount = graph.getVertexCount();
+        int[] outOffsets = graph.getOutOffsets(), outTargets = graph.getOutTargets();
+        long[] certificate = new long[outTargets.length];
+        for (int v = 0; v < vertexCount; v++) {
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                certificate[i] = (long) labeling[v] * vertexCount + labeling[outTargets[i]];
+            }
+        }
+        Arrays.sort(certificate);
+        return certificate;
+    }
+
+    /**
+     * Compares two certificates of the same length lexicographically.
+     *
+     * @param certificate1 first certificate
+     * @param certificate2 second certificate
+     * @return negative, zero or positive like {@link Comparable#compareTo(Object)}
+     */
+    private static int compare(long[] certificate1, long[] certificate2) {
+        for (int i = 0; i < certificate1.length; i++) {
+            if (certificate1[i] != certificate2[i])
+                return Long.compare(certificate1[i], certificate2[i]);
+        }
+        return 0;
+    }
+
+    /**
+     * Individualization and refinement search on one connected component.
+     */
+    private static class Search {
+        private final AdjacencyIndex graph;
+        private final int vertexCount;
+        private final int[] path;
+        private final List<int[]> automorphisms = new ArrayList<>();
+
+        private int[] firstPath;
+        private int[] firstLabeling;
+        private long[] firstCertificate;
+        private int[] bestPath;
+        private int[] bestLabeling;
+        private long[] bestCertificate;
+
+        // scratch arrays of the refinement
+        private final int[] outCounts;
+        private final int[] inCounts;
+        private final int[] touched;
+        private final boolean[] isTouched;
+        private final boolean[] isQueued;
+        private final int[] queue;
+
+        /**
+         * Searches the canonical labeling of a connected graph.
+         *
+         * @param graph index of the graph
+         */
+        Search(AdjacencyIndex graph) {
+            this.graph = graph;
+            this.vertexCount = graph.getVertexCount();
+            this.path = new int[vertexCount];
+            this.outCounts = new int[vertexCount];
+            this.inCounts = new int[vertexCount];
+            this.touched = new int[2 * vertexCount];
+            this.isTouched = new boolean[vertexCount];
+            this.isQueued = new boolean[vertexCount];
+            // one more slot than cells, so a full queue can be told apart from an empty one
+            this.queue = new int[vertexCount + 1];
+
+            Partition unit = new Partition(vertexCount);
+            refine(unit, new int[]{0}, 1);
+            search(0, unit);
+        }
+
+        /**
+         * Explores all non-equivalent individualizations of the target cell of a refined partition.
+         *
+         * @param level count of individualized vertices
+         * @param partition equitable partition of the current node
+         * @return level to continue the search at, {@link Integer#MAX_VALUE} if the search continues normally
+         */
+        private int search(int level, Partition partition) {
+            individualizeTwins(partition);
+            int[] cell = findTargetCell(partition);
+            if (cell == null)
+                return processLeaf(level, partition);
+
+            int[] explored = new int[cell.length];
+            int exploredCount = 0;
+            int[] orbits = null;
+            int orbitsAutomorphismCount = -1;
+
+            for (int vert : cell) {
+                if (exploredCount > 0 && !automorphisms.isEmpty()) {
+                    if (orbitsAutomorphismCount != automorphisms.size()) {
+                        orbits = computeOrbits(level);
+                        orbitsAutomorphismCount = automorphisms.size();
+                    }
+                    if (isInExploredOrbit(orbits, vert, explored, exploredCount))
+                        continue;
+                }
+
+                explored[exploredCount++] = vert;
+                path[level] = vert;
+                Partition child = partition.copy();
+                int singleton = child.individualize(vert);
+                refine(child, new int[]{singleton}, 1);
+                int backtrackLevel = search(level + 1, child);
+                if (backtrackLevel < level)
+                    return backtrackLevel;
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Refines a partition until it is equitable: all vertices of a cell have the same count of edges to and
+         * from every cell. Cells are split by the counts of edges to and from a splitter cell, fragments are ordered
+         * by these counts, so the result only depends on the structure of the graph and the input partition.
+         *
+         * @param partition partition to refine
+         * @param splitters start positions of the initial splitter cells
+         * @param splitterCount count of initial splitters
+         */
+        private void refine(Partition partition, int[] splitters, int splitterCount) {
+            int[] outOffsets = graph.getOutOffsets(), outTargets = graph.getOutTargets();
+            int[] inOffsets = graph.getInOffsets(), inSources = graph.getInSources();
+            int head = 0, tail = 0;
+            for (int i = 0; i < splitterCount; i++) {
+                queue[tail] = splitters[i];
+                tail = (tail + 1) % queue.length;
+                isQueued[splitters[i]] = true;
+            }
+
+            while (head != tail) {
+                int splitter = queue[head];
+                head = (head + 1) % queue.length;
+                isQueued[splitter] = false;
+
+                int touchedCount = 0;
+                for (int p = splitter; p < partition.cellEnd[splitter]; p++) {
+                    int vert = partition.lab[p];
+                    for (int i = inOffsets[vert]; i < inOffsets[vert + 1]; i++) {
+                        int source = inSources[i];
+                        outCounts[source]++;
+                        touchedCount = touch(source, touchedCount);
+                    }
+                    for (int i = outOffsets[vert]; i < outOffsets[vert + 1]; i++) {
+                        int target = outTargets[i];
+                        inCounts[target]++;
+                        touchedCount = touch(target, touchedCount);
+                    }
+                }
+
+                // split the touched cells in the order of their positions
+                int cellCount = 0;
+                for (int i = 0; i < touchedCount; i++) {
+                    int cell = partition.cellOf[touched[i]];
+                    if (partition.cellEnd[cell] - cell > 1 && !isTouched[cell]) {
+                        isTouched[cell] = true;
+                        touched[touchedCount + cellCount++] = cell;
+                    }
+                }
+                int[] cells = Arrays.copyOfRange(touched, touchedCount, touchedCount + cellCount);
+                for (int cell : cells) {
+                    isTouched[cell] = false;
+                }
+                Arrays.sort(cells);
+
+                for (int cell : cells) {
+                    tail = splitCell(partition, cell, tail);
+                }
+
+                for (int i = 0; i < touchedCount; i++) {
+                    outCounts[touched[i]] = 0;
+                    inCounts[touched[i]] = 0;
+                }
+            }
+        }
+
+        /**
+         * Remembers a vertex whose counts were changed.
+         *
+         * @param vert vertex position
+         * @param touchedCount count of remembered vertices
+         * @return new count of remembered vertices
+         */
+        private int touch(int vert, int touchedCount) {
+            if (outCounts[vert] + inCounts[vert] == 1)
+                touched[touchedCount++] = vert;
+            return touchedCount;
+        }
+
+        /**
+         * Splits a cell by the current counts and queues the new fragments. If the cell is not queued already,
+         * its largest fragment does not need to be queued, since its counts follow from the other fragments.
+         *
+         * @param partition partition to refine
+         * @param cell start position of the cell
+         * @param tail end of the splitter queue
+         * @return new end of the splitter queue
+         */
+        private int splitCell(Partition partition, int cell, int tail) {
+            int end = partition.cellEnd[cell];
+            Integer[] members = new Integer[end - cell];
+            for (int p = cell; p < end; p++) {
+                members[p - cell] = partition.lab[p];
+            }
+            Arrays.sort(members, (v, w) -> outCounts[v] != outCounts[w]
+                    ? Integer.compare(outCounts[v], outCounts[w])
+                    : Integer.compare(inCounts[v], inCounts[w]));
+            if (hasSameCounts(members[0], members[members.length - 1]))
+                return tail;
+
+            boolean wasQueued = isQueued[cell];
+            int largestFragment = -1, largestSize = 0;
+            int fragment = cell;
+            for (int i = 0; i < members.length; i++) {
+                int p = cell + i;
+                if (i > 0 && !hasSameCounts(members[i - 1], members[i])) {
+                    partition.cellEnd[fragment] = p;
+                    if (p - fragment > largestSize) {
+                        largestFragment = fragment;
+                        largestSize = p - fragment;
+                    }
+                    fragment = p;
+                }
+                partition.lab[p] = members[i];
+                partition.inv[members[i]] = p;
+                partition.cellOf[members[i]] = fragment;
+            }
+            partition.cellEnd[fragment] = end;
+            if (end - fragment > largestSize)
+                largestFragment = fragment;
+
+            for (int start = cell; start < end; start = partition.cellEnd[start]) {
+                if (isQueued[start] || (!wasQueued && start == largestFragment))
+                    continue;
+                queue[tail] = start;
+                tail = (tail + 1) % queue.length;
+                isQueued[start] = true;
+            }
+            return tail;
+        }
+
+        /**
+         * @param v first vertex position
+         * @param w second vertex position
+         * @return true if both vertices have the same counts of edges to and from the splitter
+         */
+        private boolean hasSameCounts(int v, int w) {
+            return outCounts[v] == outCounts[w] && inCounts[v] == inCounts[w];
+        }
+
+        /**
+         * Splits every cell consisting of twins into singletons, ordered by the vertex positions, and refines.
+         * A cell consists of twins if no edge connects two of its vertices and all of its vertices have the same
+         * out and in neighbours. Then every order of the cell is equivalent under automorphisms.
+         *
+         * @param partition equitable partition, will be changed
+         */
+        private void individualizeTwins(Partition partition) {
+            int[] splitters = new int[vertexCount];
+            int splitterCount = 0;
+            for (int cell = 0; cell < vertexCount; cell = partition.cellEnd[cell]) {
+                int end = partition.cellEnd[cell];
+                if (end - cell < 2 || !areTwins(partition, cell))
+                    continue;
+                Arrays.sort(partition.lab, cell, end);
+                for (int p = cell; p < end; p++) {
+                    int vert = partition.lab[p];
+                    partition.inv[vert] = p;
+                    partition.cellOf[vert] = p;
+                    partition.cellEnd[p] = p + 1;
+                    splitters[splitterCount++] = p;
+                }
+            }
+            if (splitterCount > 0)
+                refine(partition, splitters, splitterCount);
+        }
+
+        /**
+         * @param partition equitable partition
+         * @param cell start position of the cell
+         * @return true if all vertices of the cell are twins
+         */
+        private boolean areTwins(Partition partition, int cell) {
+            return areTwinRows(partition, cell, graph.getOutOffsets(), graph.getOutTargets())
+                    && areTwinRows(partition, cell, graph.getInOffsets(), graph.getInSources());
+        }
+
+        /**
+         * @param partition equitable partition
+         * @param cell start position of the cell
+         * @param offsets row offsets
+         * @param neighbours neighbours
+         * @return true if all rows of the cell are equal and do not contain vertices of the cell
+         */
+        private static boolean areTwinRows(Partition partition, int cell, int[] offsets, int[] neighbours) {
+            int first = partition.lab[cell];
+            int rowStart = offsets[first], rowLength = offsets[first + 1] - rowStart;
+            for (int i = rowStart; i < rowStart + rowLength; i++) {
+                if (partition.cellOf[neighbours[i]] == cell)
+                    return false;
+            }
+            for (int p = cell + 1; p < partition.cellEnd[cell]; p++) {
+                int vert = partition.lab[p];
+                if (offsets[vert + 1] - offsets[vert] != rowLength)
+                    return false;
+                for (int i = 0; i < rowLength; i++) {
+                    if (neighbours[offsets[vert] + i] != neighbours[rowStart + i])
+                        return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Chooses the smallest cell with more than one vertex, ties are broken by the smaller position.
+         *
+         * @param partition equitable partition
+         * @return vertex positions of the chosen cell in ascending order or null if the partition is discrete
+         */
+        private int[] findTargetCell(Partition partition) {
+            int bestCell = -1, bestSize = Integer.MAX_VALUE;
+            for (int cell = 0; cell < vertexCount; cell = partition.cellEnd[cell]) {
+                int size = partition.cellEnd[cell] - cell;
+                if (size > 1 && size < bestSize) {
+                    bestCell = cell;
+                    bestSize = size;
+                }
+            }
+            if (bestCell < 0)
+                return null;
+
+            int[] cell = Arrays.copyOfRange(partition.lab, bestCell, bestCell + bestSize);
+            Arrays.sort(cell);
+            return cell;
+        }
+
+        /**
+         * Compares the labeling of a leaf with the first and the best leaf found so far.
+         *
+         * @param level count of individualized vertices
+         * @param partition discrete partition
+         * @return level at which the current path left the path of an equivalent leaf,
+         *         {@link Integer#MAX_VALUE} if no equivalent leaf was found
+         */
+        private int processLeaf(int level, Partition partition) {
+            int[] labeling = partition.inv.clone();
+            long[] certificate = computeCertificate(graph, labeling);
+            int[] leafPath = Arrays.copyOf(path, level);
+
+            if (firstCertificate == null) {
+                firstPath = bestPath = leafPath;
+                firstLabeling = bestLabeling = labeling;
+                firstCertificate = bestCertificate = certificate;
+                return Integer.MAX_VALUE;
+            }
+
+            if (Arrays.equals(certificate, firstCertificate)) {
+                addAutomorphism(firstLabeling, labeling);
+                return commonPrefixLength(firstPath, leafPath);
+            }
+
+            int comparison = compare(certificate, bestCertificate);
+            if (comparison == 0) {
+                addAutomorphism(bestLabeling, labeling);
+                return commonPrefixLength(bestPath, leafPath);
+            }
+            if (comparison < 0) {
+                bestPath = leafPath;
+                bestLabeling = labeling;
+                bestCertificate = certificate;
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Stores the automorphism that maps the leaf onto an earlier leaf with the same certificate.
+         *
+         * @param earlierLabeling labeling of the earlier leaf
+         * @param labeling labeling of the current leaf
+         */
+        private void addAutomorphism(int[] earlierLabeling, int[] labeling) {
+            int[] earlierInverse = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                earlierInverse[earlierLabeling[v]] = v;
+            }
+            int[] automorphism = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                automorphism[v] = earlierInverse[labeling[v]];
+            }
+            automorphisms.add(automorphism);
+        }
+
+        /**
+         * Computes the orbits of the group generated by the found automorphisms which fix the first
+         * level individualized vertices.
+         *
+         * @param level count of individualized vertices
+         * @return union find parent array, vertices in the same orbit have the same root
+         */
+        private int[] computeOrbits(int level) {
+            int[] orbits = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                orbits[v] = v;
+            }
+            for (int[] automorphism : automorphisms) {
+                boolean fixesPath = true;
+                for (int i = 0; i < level && fixesPath; i++) {
+                    fixesPath = automorphism[path[i]] == path[i];
+                }
+                if (!fixesPath)
+                    continue;
+                for (int v = 0; v < vertexCount; v++) {
+                    int root1 = findRoot(orbits, v), root2 = findRoot(orbits, automorphism[v]);
+                    if (root1 != root2)
+                        orbits[Math.max(root1, root2)] = Math.min(root1, root2);
+                }
+            }
+            return orbits;
+        }
+
+        /**
+         * @param orbits union find parent array
+         * @param vert vertex position
+         * @return root of the orbit of the vertex
+         */
+        private static int findRoot(int[] orbits, int vert) {
+            while (orbits[vert] != vert) {
+                orbits[vert] = orbits[orbits[vert]];
+                vert = orbits[vert];
+            }
+            return vert;
+        }
+
+        /**
+         * @param orbits union find parent array
+         * @param vert vertex position
+         * @param explored already explored vertices of the current cell
+         * @param exploredCount count of explored vertices
+         * @return true if the vertex is equivalent to an already explored vertex
+         */
+        private static boolean isInExploredOrbit(int[] orbits, int vert, int[] explored, int exploredCount) {
+            int root = findRoot(orbits, vert);
+            for (int i = 0; i < exploredCount; i++) {
+                if (findRoot(orbits, explored[i]) == root)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @param path1 first path
+         * @param path2 second path
+         * @return count of leading vertices both paths have in common
+         */
+        private static int commonPrefixLength(int[] path1, int[] path2) {
+            int length = 0;
+            while (length < path1.length && length < path2.length && path1[length] == path2[length])
+                length++;
+            return length;
+        }
+    }
+
+    /**
+     * Ordered partition of the vertex positions. Every cell occupies a contiguous range of lab and is identified by
+     * the start of that range.
+     */
+    private static class Partition {
+        // vertices in partition order, position of every vertex in lab
+        private final int[] lab;
+        private final int[] inv;
+        // start of the cell of every vertex, end of every cell (only valid at cell starts)
+        private final int[] cellOf;
+        private final int[] cellEnd;
+
+        /**
+         * Creates the partition with one cell containing all vertices.
+         *
+         * @param vertexCount count of vertices
+         */
+        Partition(int vertexCount) {
+            lab = new int[vertexCount];
+            inv = new int[vertexCount];
+            cellOf = new int[vertexCount];
+            cellEnd = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                lab[v] = v;
+                inv[v] = v;
+            }
+            if (vertexCount > 0)
+                cellEnd[0] = vertexCount;
+        }
+
+        /**
+         * @param other partition to copy
+         */
+        private Partition(Partition other) {
+            lab = other.lab.clone();
+            inv = other.inv.clone();
+            cellOf = other.cellOf.clone();
+            cellEnd = other.cellEnd.clone();
+        }
+
+        /**
+         * @return independent copy of the partition
+         */
+        Partition copy() {
+            return new Partition(this);
+        }
+
+        /**
+         * Moves a vertex into a new singleton cell in front of the rest of its cell.
+         *
+         * @param vert vertex position
+         * @return start of the new singleton cell
+         */
+        int individualize(int vert) {
+            int cell = cellOf[vert], end = cellEnd[cell];
+            int other = lab[cell];
+            lab[inv[vert]] = other;
+            inv[other] = inv[vert];
+            lab[cell] = vert;
+            inv[vert] = cell;
+
+            cellEnd[cell] = cell + 1;
+            cellEnd[cell + 1] = end;
+            for (int p = cell + 1; p < end; p++) {
+                cellOf[lab[p]] = cell + 1;
+            }
+            return cell;
+        }
+    }
+}
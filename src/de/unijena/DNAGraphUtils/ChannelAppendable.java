@@ -0,0 +1,75 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link Appendable} which writes characters as ASCII bytes to a {@link WritableByteChannel}.
+ * Characters are collected in a buffer of fixed size which is written whenever it is full.
+ * Characters outside of ASCII are written as '?'.
+ */
+class ChannelAppendable implements Appendable, Flushable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * @param channel channel the characters will be written to
+     */
+    ChannelAppendable(WritableByteChannel channel) {
+        this(channel, BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel channel the characters will be written to
+     * @param bufferSize size of the buffer in bytes
+     */
+    ChannelAppendable(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        if (csq == null)
+            csq = "null";
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        if (csq == null)
+            csq = "null";
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (!buffer.hasRemaining())
+            flush();
+        buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+        return this;
+    }
+
+    /**
+     * Writes all buffered characters to the channel.
+     *
+     * @throws IOException if the channel throws
+     */
+    @Override
+    public void flush() throws IOException {
+        // through Buffer, the covariant overrides of ByteBuffer do not exist in Java 8
+        ((Buffer) buffer).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+    }
+}
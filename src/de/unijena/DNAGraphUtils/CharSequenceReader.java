@@ -0,0 +1,47 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.Reader;
+
+/**
+ * {@link Reader} over a {@link CharSequence}, the characters are not copied in advance.
+ */
+class CharSequenceReader extends Reader {
+    private final CharSequence sequence;
+    private int position;
+
+    /**
+     * @param sequence characters which will be read
+     */
+    CharSequenceReader(CharSequence sequence) {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public int read() {
+        return position < sequence.length() ? sequence.charAt(position++) : -1;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0)
+            return 0;
+        int count = Math.min(len, sequence.length() - position);
+        if (count <= 0)
+            return -1;
+        if (sequence instanceof String)
+            ((String) sequence).getChars(position, position + count, cbuf, off);
+        else if (sequence instanceof DnaSequence)
+            ((DnaSequence) sequence).getChars(position, position + count, cbuf, off);
+        else {
+            for (int i = 0; i < count; i++) {
+                cbuf[off + i] = sequence.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,166 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.Arrays;
+
+/**
+ * Colour refinement (1-dimensional Weisfeiler-Lehman) for directed multigraphs.
+ * Every vertex starts with a colour derived from its in degree, out degree and self loops. In every round the new
+ * colour of a vertex is a hash of its old colour, the multiset of colours of its out neighbours and the multiset of
+ * colours of its in neighbours.
+ * Colours only depend on the structure of the graph, not on the vertex numbering, so the colours of two graphs can be
+ * compared directly: isomorphic graphs always have the same colour histograms after the same count of rounds.
+ */
+class ColourRefinement {
+    private static final long IN_SALT = 0x9E3779B97F4A7C15L;
+
+    private final AdjacencyIndex graph;
+    private long[] colours;
+    private long[] nextColours;
+    private int classCount;
+
+    /**
+     * Creates the initial colouring of a graph.
+     *
+     * @param graph index of the graph
+     */
+    ColourRefinement(AdjacencyIndex graph) {
+        this(graph, initialColours(graph));
+    }
+
+    /**
+     * Creates a refinement starting with the given colouring.
+     *
+     * @param graph index of the graph
+     * @param colours initial colour for every vertex position, the array is used as is
+     */
+    ColourRefinement(AdjacencyIndex graph, long[] colours) {
+        this.graph = graph;
+        this.colours = colours;
+        this.nextColours = new long[colours.length];
+        this.classCount = countClasses(colours);
+    }
+
+    /**
+     * @param graph index of a graph
+     * @return a colour for every vertex derived from its degrees and self loops
+     */
+    private static long[] initialColours(AdjacencyIndex graph) {
+        long[] colours = new long[graph.getVertexCount()];
+        for (int v = 0; v < colours.length; v++) {
+            colours[v] = mix(mix(mix(graph.getOutDegree(v)) + graph.getInDegree(v)) + graph.countEdges(v, v));
+        }
+        return colours;
+    }
+
+    /**
+     * Executes one refinement round.
+     *
+     * @return true if the count of colour classes increased, false if the colouring is stable
+     */
+    boolean refine() {
+        int[] outOffsets = graph.getOutOffsets(), outTargets = graph.getOutTargets();
+        int[] inOffsets = graph.getInOffsets(), inSources = graph.getInSources();
+
+        for (int v = 0; v < colours.length; v++) {
+            // sums of mixed colours are hashes of the neighbour multisets independent of the neighbour order
+            long outHash = 0, inHash = 0;
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                outHash += mix(colours[outTargets[i]]);
+            }
+            for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                inHash += mix(colours[inSources[i]] ^ IN_SALT);
+            }
+            nextColours[v] = mix(mix(colours[v] + mix(outHash)) + inHash);
+        }
+
+        long[] previous = colours;
+        colours = nextColours;
+        nextColours = previous;
+
+        int previousClassCount = classCount;
+        classCount = countClasses(colours);
+        return classCount > previousClassCount;
+    }
+
+    /**
+     * Refines until the colouring is stable.
+     *
+     * @return this instance
+     */
+    ColourRefinement refineCompletely() {
+        //noinspection StatementWithEmptyBody
+        while (refine());
+        return this;
+    }
+
+    /**
+     * Refines the colourings of two graphs in lockstep and compares their colour histograms after every round.
+     *
+     * @param r1 refinement of the first graph
+     * @param r2 refinement of the second graph
+     * @return false if the histograms differ in some round, i.e. the graphs are not isomorphic,
+     *         true if both colourings are stable with equal histograms
+     */
+    static boolean refineTogether(ColourRefinement r1, ColourRefinement r2) {
+        while (true) {
+            if (!Arrays.equals(r1.getHistogram(), r2.getHistogram()))
+                return false;
+            boolean changed1 = r1.refine();
+            boolean changed2 = r2.refine();
+            if (!changed1 && !changed2)
+                return Arrays.equals(r1.getHistogram(), r2.getHistogram());
+        }
+    }
+
+    /**
+     * The array must not be modified and is only valid until the next round.
+     *
+     * @return the current colour of every vertex position
+     */
+    long[] getColours() {
+        return colours;
+    }
+
+    /**
+     * @return count of distinct colours
+     */
+    int getClassCount() {
+        return classCount;
+    }
+
+    /**
+     * @return sorted copy of all colours, equal for isomorphic graphs after the same count of rounds
+     */
+    long[] getHistogram() {
+        long[] histogram = colours.clone();
+        Arrays.sort(histogram);
+        return histogram;
+    }
+
+    /**
+     * @param colours colour of every vertex
+     * @return count of distinct colours
+     */
+    private static int countClasses(long[] colours) {
+        long[] sorted = colours.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1])
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Mixes the bits of a value (finalizer of SplitMix64).
+     *
+     * @param value value to mix
+     * @return well distributed hash of the value
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,153 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects DNA bases (or the characters of the natural form) in a char array and passes them to an
+ * {@link Appendable} in blocks. Numbers and codes are written directly into the array with the codecs of
+ * {@link DNAHelper} or as decimal digits, so encoding a number creates no intermediate strings.
+ * {@link #flush()} must be called after the last base.
+ */
+class DNABuffer {
+    private static final int BUFFER_SIZE = 8192;
+    // longest number (an int in radix 3) or code (see HuffmanCodebook#MAX_CODE_LENGTH)
+    private static final int MAX_ITEM_LENGTH = 32;
+
+    private final Appendable out;
+    private final char[] buffer;
+    private final CharBuffer wrapped;
+    private int position;
+
+    /**
+     * @param out output the bases will be appended to
+     */
+    DNABuffer(Appendable out) {
+        this.out = out;
+        this.buffer = new char[BUFFER_SIZE];
+        this.wrapped = CharBuffer.wrap(buffer);
+    }
+
+    /**
+     * @param c character which will be appended
+     * @throws IOException if the output throws
+     */
+    void append(char c) throws IOException {
+        if (position == buffer.length)
+            flush();
+        buffer[position++] = c;
+    }
+
+    /**
+     * @param c character which will be appended
+     * @param count how often the character will be appended
+     * @throws IOException if the output throws
+     */
+    void append(char c, int count) throws IOException {
+        while (count > 0) {
+            if (position == buffer.length)
+                flush();
+            int length = Math.min(count, buffer.length - position);
+            Arrays.fill(buffer, position, position + length, c);
+            position += length;
+            count -= length;
+        }
+    }
+
+    /**
+     * @param sequence characters which will be appended
+     * @throws IOException if the output throws
+     */
+    void append(CharSequence sequence) throws IOException {
+        for (int i = 0; i < sequence.length(); i++) {
+            append(sequence.charAt(i));
+        }
+    }
+
+    /**
+     * Appends a number with a fixed length, see {@link DNAHelper#writeDNA(int, int, int, char[], int)}.
+     *
+     * @param number non-negative number
+     * @param radix count of DNA bases that should be used
+     * @param length lower bound of the length
+     * @throws IOException if the output throws
+     */
+    void appendDNA(int number, int radix, int length) throws IOException {
+        if (position + Math.max(length, MAX_ITEM_LENGTH) > buffer.length) {
+            flush();
+            if (length > buffer.length - MAX_ITEM_LENGTH) {
+                // longer than the buffer, only happens for absurd lengths
+                out.append(DNAHelper.toDNA(number, radix, length));
+                return;
+            }
+        }
+        position = DNAHelper.writeDNA(number, radix, length, buffer, position);
+    }
+
+    /**
+     * Appends a number without leading A's, see {@link DNAHelper#writeDNA(int, int, char[], int)}.
+     *
+     * @param number non-negative number
+     * @param radix count of DNA bases that should be used
+     * @throws IOException if the output throws
+     */
+    void appendDNA(int number, int radix) throws IOException {
+        appendDNA(number, radix, 1);
+    }
+
+    /**
+     * Appends a number as decimal digits with a leading '-' if it is negative.
+     *
+     * @param number any number
+     * @throws IOException if the output throws
+     */
+    void appendDecimal(int number) throws IOException {
+        if (position + MAX_ITEM_LENGTH > buffer.length)
+            flush();
+        // as long, the negation of Integer.MIN_VALUE does not overflow
+        long value = number;
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        position += length;
+        for (int i = position - 1; i >= position - length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Appends a code whose bases are packed with 2 bits each, the first base is the most significant.
+     *
+     * @param code packed code
+     * @param length count of bases, at most 31
+     * @throws IOException if the output throws
+     */
+    void appendCode(long code, int length) throws IOException {
+        if (position + MAX_ITEM_LENGTH > buffer.length)
+            flush();
+        position = DNAHelper.writeCode(code, length, buffer, position);
+    }
+
+    /**
+     * Passes all collected bases to the output.
+     *
+     * @throws IOException if the output throws
+     */
+    void flush() throws IOException {
+        if (out instanceof StringBuilder)
+            ((StringBuilder) out).append(buffer, 0, position);
+        else if (out instanceof Writer)
+            ((Writer) out).write(buffer, 0, position);
+        else
+            out.append(wrapped, 0, position);
+        position = 0;
+    }
+}
@@ -1,27 +1,23 @@
 package de.unijena.DNAGraphUtils;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
- * Provides multiple static functions that are useful for DNA encoding/decoding
+ * Provides multiple static functions that are useful for DNA encoding/decoding.
+ * Numbers are written with the digits A = 0, C = 1, G = 2 and T = 3 (radix 4) or A, C, G (radix 3).
+ * The numeric codecs write into and read from caller supplied buffers without creating intermediate strings.
  */
 class DNAHelper {
-    /**
-     * Finds the first regex match.
-     *
-     * @param str {@link String} to operate regex on
-     * @param regex Regex to use
-     * @return first matched string
-     */
-    public static String findFirstOccurrence(String str, String regex){
-        Matcher m =  Pattern.compile(regex)
-                .matcher(str);
-        if (m.find())
-            return m.group();
+    // the 4 bases of every byte, most significant first
+    private static final char[] BYTE_TO_BASES = new char[256 * 4];
 
-        throw new IllegalArgumentException("No matches found");
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int i = 0; i < 4; i++) {
+                BYTE_TO_BASES[4 * b + i] = DnaSequence.toBase((b >>> (2 * (3 - i))) & 3);
+            }
+        }
     }
 
     /**
@@ -33,21 +29,8 @@ class DNAHelper {
      * @return Encoded number
      */
     public static String toDNA(int number, int radix, int length){
-        assert radix <= 4;
-        return String.format("%1$" + length + "s", toDNA(number, radix)).replace(' ', 'A');
-    }
-
-    /**
-     * Replaces all digits 0,1,2,3 by the DNA bases A,C,G,T.
-     *
-     * @param str original string
-     * @return string with DNA bases instead of 0-3
-     */
-    public static String toDNA(String str){
-        return str.replace('0', 'A')
-                .replace('1','C')
-                .replace('2', 'G')
-                .replace('3', 'T');
+        char[] buffer = new char[Math.max(length, getDNALength(number, radix))];
+        return new String(buffer, 0, writeDNA(number, radix, length, buffer, 0));
     }
 
     /**
@@ -58,7 +41,7 @@ class DNAHelper {
      * @return Encoded number
      */
     public static String toDNA(int number, int radix){
-        return toDNA(Integer.toString(number, radix));
+        return toDNA(number, radix, 1);
     }
 
     /**
@@ -69,65 +52,177 @@ class DNAHelper {
      * @return Decoded number
      */
     public static int parseDNA(String number, int radix){
-        return Integer.parseInt(number
-                .replace('A', '0')
-                .replace('C','1')
-                .replace('G', '2')
-                .replace('T', '3'), radix);
+        return parseDNA(number, 0, number.length(), radix);
+    }
+
+    /**
+     * @param number non-negative number
+     * @param radix Count of DNA bases that should be used
+     * @return count of bases of the number without leading A's, at least 1
+     */
+    public static int getDNALength(int number, int radix){
+        checkNumber(number, radix);
+        int length = 1;
+        if (radix == 4) {
+            // 2 bits per base
+            length = Math.max(1, (33 - Integer.numberOfLeadingZeros(number)) / 2);
+        }
+        else {
+            while (number >= radix) {
+                number /= radix;
+                length++;
+            }
+        }
+        return length;
     }
 
     /**
-     * Inverts any HashMap.
+     * Writes a number as DNA sequence with a fixed length into a buffer.
      *
-     * @param map original map
-     * @param <T> original key type, will be value type in return value
-     * @param <V> original value type, will be key type in return value
-     * @return inverted map
+     * @param number non-negative number that should be encoded in DNA
+     * @param radix Count of DNA bases that should be used (3 or 4)
+     * @param length Lower bound of the length, the number is padded with leading A's
+     *               (if the number encoded in DNA is longer, it wont be truncated)
+     * @param buffer buffer the bases will be written to
+     * @param offset position of the first base in the buffer
+     * @return position behind the last written base
      */
-    public static <T,V> HashMap<T,V> invertMap(Map<V,T> map){
-        HashMap<T,V> invMap = new HashMap<>();
-        for (Map.Entry<V,T> entry : map.entrySet()) {
-            invMap.put(entry.getValue(), entry.getKey());
+    public static int writeDNA(int number, int radix, int length, char[] buffer, int offset){
+        length = Math.max(length, getDNALength(number, radix));
+        int end = offset + length;
+        int position = end;
+        if (radix == 4) {
+            // 4 bases per table lookup
+            while (position - offset >= 4) {
+                System.arraycopy(BYTE_TO_BASES, 4 * (number & 0xFF), buffer, position - 4, 4);
+                number >>>= 8;
+                position -= 4;
+            }
+            while (position > offset) {
+                buffer[--position] = DnaSequence.toBase(number & 3);
+                number >>>= 2;
+            }
+        }
+        else {
+            while (position > offset) {
+                buffer[--position] = DnaSequence.toBase(number % radix);
+                number /= radix;
+            }
         }
-        return invMap;
+        return end;
+    }
+
+    /**
+     * Writes a number as DNA sequence without leading A's into a buffer.
+     *
+     * @param number non-negative number that should be encoded in DNA
+     * @param radix Count of DNA bases that should be used (3 or 4)
+     * @param buffer buffer the bases will be written to
+     * @param offset position of the first base in the buffer
+     * @return position behind the last written base
+     */
+    public static int writeDNA(int number, int radix, char[] buffer, int offset){
+        return writeDNA(number, radix, 1, buffer, offset);
     }
 
     /**
-     * Writes a DNA representation of a given list to the given {@link StringBuilder}.
-     * Can be read with {@link DNAHelper#parseList(Collection, String)}.
+     * Writes a code whose bases are packed with 2 bits each into a buffer.
      *
-     * @param vals values to append
-     * @param sb object which values will be appended to
+     * @param code packed code, the first base is the most significant
+     * @param length count of bases, at most 31
+     * @param buffer buffer the bases will be written to
+     * @param offset position of the first base in the buffer
+     * @return position behind the last written base
      */
-    public static void appendList(List<Integer> vals, StringBuilder sb){
+    public static int writeCode(long code, int length, char[] buffer, int offset){
+        for (int i = offset + length - 1; i >= offset; i--) {
+            buffer[i] = DnaSequence.toBase((int) code & 3);
+            code >>>= 2;
+        }
+        return offset + length;
+    }
+
+    /**
+     * Decodes a number written with DNA bases from a part of a sequence.
+     *
+     * @param sequence sequence containing the number
+     * @param offset position of the first base
+     * @param length count of bases
+     * @param radix Count of DNA bases that were be used
+     * @return Decoded number
+     */
+    public static int parseDNA(CharSequence sequence, int offset, int length, int radix){
+        if (length == 0)
+            throw new NumberFormatException("Missing number");
+        long number = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = DnaSequence.toDigit(sequence.charAt(i));
+            if (digit < 0 || digit >= radix)
+                throw new NumberFormatException("Invalid base '" + sequence.charAt(i) + "' for radix " + radix);
+            number = number * radix + digit;
+            if (number > Integer.MAX_VALUE)
+                throw new NumberFormatException("Number too large");
+        }
+        return (int) number;
+    }
+
+    /**
+     * @param number number that should be encoded
+     * @param radix Count of DNA bases that should be used
+     */
+    private static void checkNumber(int number, int radix){
+        if (number < 0)
+            throw new IllegalArgumentException("Negative numbers cannot be encoded: " + number);
+        if (radix != 3 && radix != 4)
+            throw new IllegalArgumentException("Unsupported radix " + radix);
+    }
+
+    /**
+     * Writes a DNA representation of a given list to the given {@link DNABuffer}.
+     * Can be read with {@link DNAHelper#parseList(SequenceReader)}.
+     *
+     * @param vals non-negative values to append, may be empty
+     * @param out object which values will be appended to
+     * @throws IOException if the output throws
+     */
+    public static void appendList(int[] vals, DNABuffer out) throws IOException {
         // length l (length of the maximal value in vals when encoded in base 3)
         // delimiter T
         // every value in fixed length l (in base 3):
         // delimiter T
-        int maxValue = Collections.max(vals);
-        int maxValueReprLength = toDNA(maxValue, 3).length();
-        sb.append(toDNA(maxValueReprLength, 3));
-        sb.append('T');
-        vals.forEach(val -> sb.append(toDNA(val, 3, maxValueReprLength)));
-        sb.append('T');
+        int maxValue = 0;
+        for (int val : vals) {
+            maxValue = Math.max(maxValue, val);
+        }
+        int maxValueReprLength = getDNALength(maxValue, 3);
+        out.appendDNA(maxValueReprLength, 3);
+        out.append('T');
+        for (int val : vals) {
+            out.appendDNA(val, 3, maxValueReprLength);
+        }
+        out.append('T');
     }
 
     /**
-     * Reads a list written with {@link DNAHelper#appendList(List, StringBuilder)} from the beginning of a given string.
+     * Reads a list written with {@link DNAHelper#appendList(int[], DNABuffer)} from a sequence.
      *
-     * @param vals collection which will be filled with the read values
-     * @param repr string which will be read from
-     * @return rest of the string
+     * @param reader sequence which will be read from, afterwards it is positioned behind the list
+     * @return the read values
+     * @throws IOException if the reader throws
      */
-    public static String parseList(Collection<Integer> vals, String repr){
-        String lengthStr = findFirstOccurrence(repr, "^[ACG]*(?=T)");
-        int length = parseDNA(lengthStr, 3);
-        repr = repr.substring(lengthStr.length() + 1);
-        String valsStr = findFirstOccurrence(repr, "^[ACG]*(?=T)");
-        for (int i = 0; i < valsStr.length(); i+= length) {
-            String valStr = valsStr.substring(i, i+length);
-            vals.add(parseDNA(valStr, 3));
+    public static int[] parseList(SequenceReader reader) throws IOException {
+        int length = reader.readDNA(3);
+        if (length == 0)
+            throw new IllegalArgumentException("Values of a list must have at least one base");
+        reader.expect('T');
+        int[] vals = new int[16];
+        int count = 0;
+        while (reader.peek() != 'T') {
+            if (count == vals.length)
+                vals = Arrays.copyOf(vals, 2 * count);
+            vals[count++] = reader.readDNA(3, length);
         }
-        return repr.substring(valsStr.length() + 1);
+        reader.expect('T');
+        return Arrays.copyOf(vals, count);
     }
 }
@@ -0,0 +1,294 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.Arrays;
+
+/**
+ * DNA sequence which stores every base in 2 bits: A -> 0, C -> 1, G -> 2, T -> 3.
+ * 32 bases are packed into one long, base i is stored in the bits 2 * (i % 32) and 2 * (i % 32) + 1 of word i / 32.
+ * Bases can only be appended, so a {@link #subSequence(int, int)} is a view which shares the words.
+ * Comparisons and hashing work on whole words.
+ */
+public final class DnaSequence implements CharSequence, Appendable {
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    private static final int BASES_PER_WORD = 32;
+
+    private long[] words;
+    private int offset;
+    private int length;
+    private boolean isShared;
+
+    /**
+     * Creates an empty sequence.
+     */
+    public DnaSequence() {
+        this(BASES_PER_WORD);
+    }
+
+    /**
+     * Creates an empty sequence.
+     *
+     * @param capacity count of bases which can be appended before the sequence grows
+     */
+    public DnaSequence(int capacity) {
+        words = new long[Math.max(1, wordCount(capacity))];
+    }
+
+    /**
+     * Creates a sequence containing the given bases.
+     *
+     * @param bases sequence of the characters A, C, G and T
+     */
+    public DnaSequence(CharSequence bases) {
+        this(bases.length());
+        append(bases);
+    }
+
+    /**
+     * Creates a view on a range of the words of another sequence.
+     *
+     * @param words words of the other sequence
+     * @param offset position of the first base of the view in the words
+     * @param length count of bases in the view
+     */
+    private DnaSequence(long[] words, int offset, int length) {
+        this.words = words;
+        this.offset = offset;
+        this.length = length;
+        this.isShared = true;
+    }
+
+    /**
+     * @param bases count of bases
+     * @return count of words needed to store the bases
+     */
+    private static int wordCount(int bases) {
+        return (bases + BASES_PER_WORD - 1) / BASES_PER_WORD;
+    }
+
+    /**
+     * @param digit digit from 0 to 3
+     * @return the DNA base of the digit
+     */
+    static char toBase(int digit) {
+        return BASES[digit];
+    }
+
+    /**
+     * @param c character or -1
+     * @return digit of the DNA base: A -> 0, C -> 1, G -> 2, T -> 3 or -1 if the character is no base
+     */
+    static int toDigit(int c) {
+        switch (c) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return count of bases
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index position of the base
+     * @return the base at the position as digit from 0 to 3
+     */
+    public int getDigit(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        int position = offset + index;
+        return (int) (words[position / BASES_PER_WORD] >>> (2 * (position % BASES_PER_WORD))) & 3;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return BASES[getDigit(index)];
+    }
+
+    /**
+     * Returns a view on a part of the sequence without copying the bases.
+     *
+     * @param start first position (inclusive)
+     * @param end last position (exclusive)
+     * @return view on the bases from start to end
+     */
+    @Override
+    public DnaSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        isShared = true;
+        return new DnaSequence(words, offset + start, end - start);
+    }
+
+    /**
+     * Appends a base given as digit.
+     *
+     * @param digit digit from 0 to 3
+     * @return this sequence
+     */
+    public DnaSequence appendDigit(int digit) {
+        if (digit < 0 || digit > 3)
+            throw new IllegalArgumentException("Invalid digit " + digit);
+        ensureWritable(length + 1);
+        int position = offset + length;
+        words[position / BASES_PER_WORD] |= (long) digit << (2 * (position % BASES_PER_WORD));
+        length++;
+        return this;
+    }
+
+    /**
+     * @param c one of the characters A, C, G and T
+     * @return this sequence
+     */
+    @Override
+    public DnaSequence append(char c) {
+        int digit = toDigit(c);
+        if (digit < 0)
+            throw new IllegalArgumentException("Invalid DNA base '" + c + "'");
+        return appendDigit(digit);
+    }
+
+    /**
+     * @param csq sequence of the characters A, C, G and T
+     * @return this sequence
+     */
+    @Override
+    public DnaSequence append(CharSequence csq) {
+        return append(csq, 0, csq.length());
+    }
+
+    /**
+     * @param csq sequence of the characters A, C, G and T
+     * @param start first position in csq (inclusive)
+     * @param end last position in csq (exclusive)
+     * @return this sequence
+     * @throws IndexOutOfBoundsException if the range is not within csq, this sequence is left unchanged
+     * @throws IllegalArgumentException if the range contains a character which is not a base,
+     *                                  this sequence is left unchanged
+     */
+    @Override
+    public DnaSequence append(CharSequence csq, int start, int end) {
+        if (start < 0 || start > end || end > csq.length())
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + csq.length());
+        if (csq instanceof DnaSequence) {
+            DnaSequence other = (DnaSequence) csq;
+            ensureWritable(length + end - start);
+            for (int i = start; i < end; i++) {
+                appendDigit(other.getDigit(i));
+            }
+        } else {
+            // validate first, appended bases cannot be taken back
+            for (int i = start; i < end; i++) {
+                if (toDigit(csq.charAt(i)) < 0)
+                    throw new IllegalArgumentException("Invalid DNA base '" + csq.charAt(i) + "'");
+            }
+            ensureWritable(length + end - start);
+            for (int i = start; i < end; i++) {
+                appendDigit(toDigit(csq.charAt(i)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Makes sure the words are not shared with views and can hold the given count of bases.
+     *
+     * @param capacity count of bases
+     */
+    private void ensureWritable(int capacity) {
+        if (isShared || offset != 0) {
+            // appending must not change the words seen by views, so this sequence gets its own copy
+            long[] copy = new long[Math.max(1, wordCount(Math.max(capacity, length + length / 2)))];
+            for (int i = 0; i < wordCount(length); i++) {
+                copy[i] = getWord(i * BASES_PER_WORD);
+            }
+            words = copy;
+            offset = 0;
+            isShared = false;
+        } else if (wordCount(capacity) > words.length) {
+            words = Arrays.copyOf(words, Math.max(wordCount(capacity), words.length + (words.length >> 1) + 1));
+        }
+    }
+
+    /**
+     * @param index position of the first base
+     * @return the 32 bases starting at the position packed into one word, bases behind the end are 0
+     */
+    private long getWord(int index) {
+        int position = offset + index;
+        int wordIndex = position / BASES_PER_WORD, shift = 2 * (position % BASES_PER_WORD);
+        long word = words[wordIndex] >>> shift;
+        if (shift != 0 && wordIndex + 1 < words.length)
+            word |= words[wordIndex + 1] << (64 - shift);
+        int remaining = length - index;
+        if (remaining < BASES_PER_WORD)
+            word &= (1L << (2 * remaining)) - 1;
+        return word;
+    }
+
+    /**
+     * Copies the bases as characters into an array.
+     *
+     * @param start first position (inclusive)
+     * @param end last position (exclusive)
+     * @param dst destination array
+     * @param dstStart first position in the destination array
+     */
+    public void getChars(int start, int end, char[] dst, int dstStart) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        for (int i = start; i < end; ) {
+            long word = getWord(i);
+            int count = Math.min(BASES_PER_WORD, end - i);
+            for (int j = 0; j < count; j++) {
+                dst[dstStart++] = BASES[(int) (word >>> (2 * j)) & 3];
+            }
+            i += count;
+        }
+    }
+
+    /**
+     * @return the bases as {@link String}
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        getChars(0, length, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * @param o other object
+     * @return true if the other object is a {@link DnaSequence} with the same bases
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof DnaSequence))
+            return false;
+        DnaSequence other = (DnaSequence) o;
+        if (length != other.length)
+            return false;
+        for (int i = 0; i < length; i += BASES_PER_WORD) {
+            if (getWord(i) != other.getWord(i))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = length;
+        for (int i = 0; i < length; i += BASES_PER_WORD) {
+            hash = 31 * hash + getWord(i);
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
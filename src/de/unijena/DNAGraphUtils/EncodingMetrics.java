@@ -0,0 +1,441 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects metrics of the encodings wrapped with {@link #wrap(GraphEncoding)}: latency histograms, sequence lengths,
+ * sizes of the graphs and error counts, separately for every encoding class and operation
+ * (encode with and without preserveOrder, decode). The metrics of an operation are recorded lock-free, so one
+ * instance can be shared by all threads. While the metrics are disabled the wrappers only pass the calls through.
+ */
+public class EncodingMetrics {
+    static final String ENCODE = "encode";
+    static final String DECODE = "decode";
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    /**
+     * Wraps an encoding, all wrappers of the same encoding class share their metrics.
+     *
+     * @param encoding the instance of an {@link GraphEncoding} implementation
+     * @return an encoding which records its calls in these metrics
+     */
+    public InstrumentedGraphEncoding wrap(GraphEncoding encoding) {
+        return new InstrumentedGraphEncoding(encoding, this);
+    }
+
+    /**
+     * @return true if the wrapped encodings record their calls
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled indicates whether the wrapped encodings record their calls
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Sets all metrics to 0, the operations stay registered.
+     */
+    public void reset() {
+        for (OperationMetrics operation : operations.values()) {
+            operation.reset();
+        }
+    }
+
+    /**
+     * @return copy of the current metrics of all operations sorted by encoding and operation
+     */
+    public Snapshot snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (OperationMetrics operation : operations.values()) {
+            snapshots.add(operation.snapshot());
+        }
+        snapshots.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return new Snapshot(snapshots);
+    }
+
+    /**
+     * @param encoding simple name of the encoding class
+     * @param operation {@link #ENCODE} or {@link #DECODE}
+     * @param preserveOrder order option of the operation or null if it is unknown
+     * @return the metrics of the operation, created on first use
+     */
+    OperationMetrics getOperation(String encoding, String operation, Boolean preserveOrder) {
+        String name = encoding + " " + operation + (preserveOrder == null ? "" : " preserveOrder=" + preserveOrder);
+        return operations.computeIfAbsent(name, key -> new OperationMetrics(encoding, operation, preserveOrder));
+    }
+
+    /**
+     * Metrics of one operation of one encoding class.
+     */
+    static class OperationMetrics {
+        private final String encoding;
+        private final String operation;
+        private final Boolean preserveOrder;
+        private final LogHistogram latency = new LogHistogram();
+        private final LogHistogram sequenceLength = new LogHistogram();
+        private final LongAdder vertexCount = new LongAdder();
+        private final LongAdder edgeCount = new LongAdder();
+        private final LongAdder errorCount = new LongAdder();
+
+        /**
+         * @param encoding simple name of the encoding class
+         * @param operation {@link #ENCODE} or {@link #DECODE}
+         * @param preserveOrder order option of the operation or null if it is unknown
+         */
+        private OperationMetrics(String encoding, String operation, Boolean preserveOrder) {
+            this.encoding = encoding;
+            this.operation = operation;
+            this.preserveOrder = preserveOrder;
+        }
+
+        /**
+         * @param nanos duration of the call
+         * @param graph the encoded or decoded graph
+         * @param length count of characters of the sequence
+         */
+        void record(long nanos, Graph graph, long length) {
+            latency.record(nanos);
+            sequenceLength.record(length);
+            vertexCount.add(graph.getVertexCount());
+            edgeCount.add(graph.getEdgeCount());
+        }
+
+        /**
+         * Counts a call which threw.
+         */
+        void recordError() {
+            errorCount.increment();
+        }
+
+        /**
+         * Sets all metrics to 0.
+         */
+        private void reset() {
+            latency.reset();
+            sequenceLength.reset();
+            vertexCount.reset();
+            edgeCount.reset();
+            errorCount.reset();
+        }
+
+        /**
+         * @return copy of the current metrics
+         */
+        private OperationSnapshot snapshot() {
+            return new OperationSnapshot(encoding, operation, preserveOrder, latency.snapshot(),
+                    sequenceLength.snapshot(), vertexCount.sum(), edgeCount.sum(), errorCount.sum());
+        }
+    }
+
+    /**
+     * Metrics of all operations at one point in time.
+     */
+    public static class Snapshot {
+        private final List<OperationSnapshot> operations;
+
+        /**
+         * @param operations metrics of the operations sorted by name
+         */
+        private Snapshot(List<OperationSnapshot> operations) {
+            this.operations = Collections.unmodifiableList(operations);
+        }
+
+        /**
+         * @return metrics of the operations sorted by encoding and operation
+         */
+        public List<OperationSnapshot> getOperations() {
+            return operations;
+        }
+
+        /**
+         * @return one line per operation, latencies in microseconds
+         */
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            for (OperationSnapshot operation : operations) {
+                HistogramSnapshot latency = operation.getLatency();
+                HistogramSnapshot length = operation.getSequenceLength();
+                sb.append(operation.getName()).append(": ")
+                        .append(latency.getCount()).append(" calls, ")
+                        .append(operation.getErrorCount()).append(" errors, ")
+                        .append(format(operation.getNucleotidesPerEdge())).append(" nt/edge, latency us mean=")
+                        .append(format(latency.getMean() / 1000))
+                        .append(" p50=").append(format(latency.getValueAtPercentile(50) / 1000.d))
+                        .append(" p90=").append(format(latency.getValueAtPercentile(90) / 1000.d))
+                        .append(" p99=").append(format(latency.getValueAtPercentile(99) / 1000.d))
+                        .append(" max=").append(format(latency.getMax() / 1000.d))
+                        .append(", length mean=").append(format(length.getMean()))
+                        .append(" p50=").append(length.getValueAtPercentile(50))
+                        .append(" p99=").append(length.getValueAtPercentile(99))
+                        .append(" max=").append(length.getMax())
+                        .append('\n');
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return the metrics as JSON object with an array "operations", latencies in nanoseconds
+         */
+        public String toJson() {
+            StringBuilder sb = new StringBuilder("{\"operations\":[");
+            for (int i = 0; i < operations.size(); i++) {
+                OperationSnapshot operation = operations.get(i);
+                if (i > 0)
+                    sb.append(',');
+                sb.append("{\"encoding\":\"").append(operation.getEncoding())
+                        .append("\",\"operation\":\"").append(operation.getOperation())
+                        .append("\",\"preserveOrder\":").append(operation.getPreserveOrder())
+                        .append(",\"count\":").append(operation.getLatency().getCount())
+                        .append(",\"errors\":").append(operation.getErrorCount())
+                        .append(",\"vertices\":").append(operation.getVertexCount())
+                        .append(",\"edges\":").append(operation.getEdgeCount())
+                        .append(",\"nucleotides\":").append(operation.getNucleotideCount())
+                        .append(",\"nucleotidesPerEdge\":").append(format(operation.getNucleotidesPerEdge()))
+                        .append(",\"latencyNanos\":");
+                appendJson(operation.getLatency(), sb);
+                sb.append(",\"sequenceLength\":");
+                appendJson(operation.getSequenceLength(), sb);
+                sb.append('}');
+            }
+            return sb.append("]}").toString();
+        }
+
+        /**
+         * @param histogram a histogram
+         * @param sb builder the histogram will be appended to as JSON object
+         */
+        private static void appendJson(HistogramSnapshot histogram, StringBuilder sb) {
+            sb.append("{\"count\":").append(histogram.getCount())
+                    .append(",\"mean\":").append(format(histogram.getMean()))
+                    .append(",\"p50\":").append(histogram.getValueAtPercentile(50))
+                    .append(",\"p90\":").append(histogram.getValueAtPercentile(90))
+                    .append(",\"p99\":").append(histogram.getValueAtPercentile(99))
+                    .append(",\"p999\":").append(histogram.getValueAtPercentile(99.9))
+                    .append(",\"max\":").append(histogram.getMax())
+                    .append('}');
+        }
+
+        /**
+         * @param value a number
+         * @return the number with 2 decimals
+         */
+        private static String format(double value) {
+            return String.format(Locale.ROOT, "%.2f", value);
+        }
+
+        @Override
+        public String toString() {
+            return toText();
+        }
+    }
+
+    /**
+     * Metrics of one operation of one encoding class at one point in time.
+     */
+    public static class OperationSnapshot {
+        private final String encoding;
+        private final String operation;
+        private final Boolean preserveOrder;
+        private final HistogramSnapshot latency;
+        private final HistogramSnapshot sequenceLength;
+        private final long vertexCount;
+        private final long edgeCount;
+        private final long errorCount;
+
+        /**
+         * @param encoding simple name of the encoding class
+         * @param operation "encode" or "decode"
+         * @param preserveOrder order option of the operation or null if it is unknown
+         * @param latency durations of the calls in nanoseconds
+         * @param sequenceLength lengths of the sequences
+         * @param vertexCount sum of the vertices of all graphs
+         * @param edgeCount sum of the edges of all graphs
+         * @param errorCount count of calls which threw
+         */
+        private OperationSnapshot(String encoding, String operation, Boolean preserveOrder, HistogramSnapshot latency,
+                                  HistogramSnapshot sequenceLength, long vertexCount, long edgeCount,
+                                  long errorCount) {
+            this.encoding = encoding;
+            this.operation = operation;
+            this.preserveOrder = preserveOrder;
+            this.latency = latency;
+            this.sequenceLength = sequenceLength;
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+            this.errorCount = errorCount;
+        }
+
+        /**
+         * @return encoding, operation and order option
+         */
+        public String getName() {
+            return encoding + " " + operation + (preserveOrder == null ? "" : " preserveOrder=" + preserveOrder);
+        }
+
+        /**
+         * @return simple name of the encoding class
+         */
+        public String getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return "encode" or "decode"
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return order option of the operation or null for decoding, where it is not known
+         */
+        public Boolean getPreserveOrder() {
+            return preserveOrder;
+        }
+
+        /**
+         * @return durations of the successful calls in nanoseconds
+         */
+        public HistogramSnapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return lengths of the sequences of the successful calls
+         */
+        public HistogramSnapshot getSequenceLength() {
+            return sequenceLength;
+        }
+
+        /**
+         * @return sum of the vertices of all graphs
+         */
+        public long getVertexCount() {
+            return vertexCount;
+        }
+
+        /**
+         * @return sum of the edges of all graphs
+         */
+        public long getEdgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * @return sum of the lengths of all sequences
+         */
+        public long getNucleotideCount() {
+            return sequenceLength.getSum();
+        }
+
+        /**
+         * @return nucleotides per edge over all graphs, 0 if there were no edges
+         */
+        public double getNucleotidesPerEdge() {
+            return edgeCount == 0 ? 0 : (double) getNucleotideCount() / edgeCount;
+        }
+
+        /**
+         * @return count of calls which threw
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        @Override
+        public String toString() {
+            return getName() + ": latency " + latency + ", length " + sequenceLength + ", " + errorCount + " errors";
+        }
+    }
+
+    /**
+     * Counts of a {@link LogHistogram} at one point in time. Percentiles are reported as the largest value of
+     * their bucket, so they are at most 12.5% too large.
+     */
+    public static class HistogramSnapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        /**
+         * @param counts count of every bucket
+         * @param sum sum of all values
+         * @param max largest value
+         */
+        HistogramSnapshot(long[] counts, long sum, long max) {
+            this.counts = counts;
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return count of values
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return sum of all values
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return mean of the values, 0 if there are none
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return largest value, 0 if there are none
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @param percentile percentile from 0 to 100
+         * @return value which at least this percentage of the values does not exceed, 0 if there are none
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank)
+                    return Math.min(LogHistogram.getUpperBound(bucket), max);
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + String.format(Locale.ROOT, "%.2f", getMean())
+                    + " p50=" + getValueAtPercentile(50) + " p99=" + getValueAtPercentile(99) + " max=" + max;
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads graphs from a FASTA file written by {@link FastaGraphWriter}.
+ * The file is memory mapped once in windows of 1 GiB: opening it only indexes the record headers, the sequence of
+ * a record is decoded directly from duplicated views of the windows without copying it onto the heap.
+ * Files and records may be larger than the heap. Records can be decoded in parallel.
+ */
+public class FastaGraphReader implements Closeable {
+    // mapped windows are limited to 2 GiB, so large files are mapped piece by piece
+    private static final long WINDOW_SIZE = 1L << 30;
+    // encodings of this package are created without reflection
+    private static final Map<String, Supplier<GraphEncoding>> KNOWN_ENCODINGS = new HashMap<>();
+
+    static {
+        KNOWN_ENCODINGS.put(SumGraphEncoding.class.getName(), SumGraphEncoding::new);
+        KNOWN_ENCODINGS.put(FixedLengthGraphEncoding.class.getName(), FixedLengthGraphEncoding::new);
+        KNOWN_ENCODINGS.put(HuffmanGraphEncoding.class.getName(), HuffmanGraphEncoding::new);
+        KNOWN_ENCODINGS.put(NaturalGraphEncoding.class.getName(), NaturalGraphEncoding::new);
+    }
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> windows = new ArrayList<>();
+    private final List<Record> records = new ArrayList<>();
+    private final Map<String, GraphEncoding> encodings = new HashMap<>();
+
+    /**
+     * Opens a FASTA file and indexes its records.
+     *
+     * @param path path of the FASTA file
+     * @throws IOException if the file cannot be read or contains an invalid header
+     */
+    public FastaGraphReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            indexRecords();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Scans the file for header lines, which start with '>', and remembers where the sequences are.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void indexRecords() throws IOException {
+        long size = channel.size();
+        StringBuilder header = null;
+        boolean isLineStart = true;
+        long sequenceStart = -1;
+        String[] headerFields = null;
+
+        for (long windowStart = 0; windowStart < size; windowStart += WINDOW_SIZE) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                    Math.min(WINDOW_SIZE, size - windowStart));
+            windows.add(window);
+            for (int i = 0; i < window.limit(); i++) {
+                char c = (char) (window.get(i) & 0xFF);
+                if (header != null) {
+                    if (c == '\n') {
+                        headerFields = parseHeader(header.toString().trim());
+                        header = null;
+                        sequenceStart = windowStart + i + 1;
+                    } else
+                        header.append(c);
+                } else if (isLineStart && c == '>') {
+                    if (headerFields != null)
+                        addRecord(headerFields, sequenceStart, windowStart + i);
+                    header = new StringBuilder();
+                }
+                isLineStart = c == '\n';
+            }
+        }
+
+        if (header != null) {
+            headerFields = parseHeader(header.toString().trim());
+            sequenceStart = size;
+        }
+        if (headerFields != null)
+            addRecord(headerFields, sequenceStart, size);
+    }
+
+    /**
+     * Splits the header at whitespace with a single pass over the line.
+     *
+     * @param header header line without '>'
+     * @return id, encoding class name and preserveOrder flag
+     */
+    private static String[] parseHeader(String header) {
+        String id = null, encoding = null, preserveOrder = null;
+        int position = 0;
+        while (position < header.length()) {
+            if (Character.isWhitespace(header.charAt(position))) {
+                position++;
+                continue;
+            }
+            int fieldStart = position;
+            while (position < header.length() && !Character.isWhitespace(header.charAt(position))) {
+                position++;
+            }
+            if (id == null)
+                id = header.substring(fieldStart, position);
+            else if (header.startsWith(FastaGraphWriter.ENCODING_KEY, fieldStart))
+                encoding = header.substring(fieldStart + FastaGraphWriter.ENCODING_KEY.length(), position);
+            else if (header.startsWith(FastaGraphWriter.PRESERVE_ORDER_KEY, fieldStart))
+                preserveOrder = header.substring(fieldStart + FastaGraphWriter.PRESERVE_ORDER_KEY.length(), position);
+        }
+        if (id == null || encoding == null || preserveOrder == null)
+            throw new IllegalArgumentException("Invalid FASTA header \"" + header + "\"");
+        return new String[]{id, encoding, preserveOrder};
+    }
+
+    /**
+     * @param headerFields id, encoding class name and preserveOrder flag
+     * @param sequenceStart file position of the first character of the sequence
+     * @param sequenceEnd file position behind the last character of the sequence
+     */
+    private void addRecord(String[] headerFields, long sequenceStart, long sequenceEnd) {
+        records.add(new Record(headerFields[0], getEncoding(headerFields[1]),
+                Boolean.parseBoolean(headerFields[2]), sequenceStart, sequenceEnd));
+    }
+
+    /**
+     * Resolves the encoding class of a header. The encodings of this package are taken from a registry, other
+     * classes are loaded without initializing them and only instantiated if they implement {@link GraphEncoding}.
+     *
+     * @param className class name of an {@link GraphEncoding} implementation
+     * @return shared instance of the encoding
+     */
+    private GraphEncoding getEncoding(String className) {
+        GraphEncoding encoding = encodings.get(className);
+        if (encoding == null) {
+            Supplier<GraphEncoding> knownEncoding = KNOWN_ENCODINGS.get(className);
+            if (knownEncoding != null)
+                encoding = knownEncoding.get();
+            else {
+                try {
+                    Class<?> encodingClass = Class.forName(className, false, GraphEncoding.class.getClassLoader());
+                    if (!GraphEncoding.class.isAssignableFrom(encodingClass))
+                        throw new IllegalArgumentException("Class " + className + " is no GraphEncoding");
+                    encoding = (GraphEncoding) encodingClass.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    throw new IllegalArgumentException("Unknown encoding " + className, e);
+                }
+            }
+            encodings.put(className, encoding);
+        }
+        return encoding;
+    }
+
+    /**
+     * @return unmodifiable list of all records in the order of the file
+     */
+    public List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Decodes the graph of a record.
+     *
+     * @param index position of the record in the file
+     * @return the decoded graph
+     * @throws IOException if the file cannot be read
+     */
+    public Graph read(int index) throws IOException {
+        return records.get(index).decode();
+    }
+
+    /**
+     * Decodes the graphs of all records.
+     *
+     * @param parallel indicates whether the records should be decoded in parallel
+     * @return the decoded graphs in the order of the file
+     * @throws IOException if the file cannot be read
+     */
+    public List<Graph> readAll(boolean parallel) throws IOException {
+        IntStream indices = IntStream.range(0, records.size());
+        if (parallel)
+            indices = indices.parallel();
+        try {
+            return indices.mapToObj(i -> {
+                try {
+                    return read(i);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Closes the file, records can no longer be decoded. The mapped windows are released when the reader is
+     * garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One encoded graph in the FASTA file.
+     */
+    public class Record {
+        private final String id;
+        private final GraphEncoding encoding;
+        private final boolean preserveOrder;
+        private final long sequenceStart;
+        private final long sequenceEnd;
+
+        /**
+         * @param id identifier of the graph
+         * @param encoding encoding of the sequence
+         * @param preserveOrder indicates whether the order was preserved
+         * @param sequenceStart file position of the first character of the sequence
+         * @param sequenceEnd file position behind the last character of the sequence
+         */
+        private Record(String id, GraphEncoding encoding, boolean preserveOrder, long sequenceStart,
+                       long sequenceEnd) {
+            this.id = id;
+            this.encoding = encoding;
+            this.preserveOrder = preserveOrder;
+            this.sequenceStart = sequenceStart;
+            this.sequenceEnd = sequenceEnd;
+        }
+
+        /**
+         * @return identifier of the graph
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return encoding of the sequence
+         */
+        public GraphEncoding getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return true if the sequence was encoded with preserveOrder
+         */
+        public boolean isOrderPreserved() {
+            return preserveOrder;
+        }
+
+        /**
+         * Decodes the graph directly from the mapped windows of the file.
+         *
+         * @return the decoded graph
+         * @throws IOException if the file cannot be read or is closed
+         */
+        public Graph decode() throws IOException {
+            if (!channel.isOpen())
+                throw new ClosedChannelException();
+            Graph graph = new Graph();
+            encoding.load(graph, new MappedSequenceReader(windows, sequenceStart, sequenceEnd));
+            return graph;
+        }
+    }
+
+    /**
+     * {@link Reader} over a range of a file which reads from views of the shared mapped windows and skips line
+     * breaks. Every reader duplicates the windows, so records can be read in parallel. A range which crosses the
+     * boundary of a window continues in the view of the next window.
+     */
+    private static class MappedSequenceReader extends Reader {
+        private final List<MappedByteBuffer> windows;
+        private final long end;
+        private int windowIndex;
+        private ByteBuffer window;
+
+        /**
+         * @param windows mapped windows of the file, window i starts at file position i * WINDOW_SIZE
+         * @param start first file position (inclusive)
+         * @param end last file position (exclusive)
+         */
+        private MappedSequenceReader(List<MappedByteBuffer> windows, long start, long end) {
+            this.windows = windows;
+            this.end = end;
+            this.windowIndex = (int) (start / WINDOW_SIZE);
+            this.window = start < end ? view(windowIndex, start) : null;
+        }
+
+        /**
+         * @param index index of a window
+         * @param start first file position of the view, must be in the window
+         * @return view of the window from the start up to the end of the range or the window
+         */
+        private ByteBuffer view(int index, long start) {
+            long windowStart = index * WINDOW_SIZE;
+            ByteBuffer view = windows.get(index).duplicate();
+            // through Buffer, the covariant overrides of ByteBuffer do not exist in Java 8
+            Buffer buffer = view;
+            buffer.limit((int) (Math.min(end - windowStart, view.capacity())));
+            buffer.position((int) (start - windowStart));
+            return view;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            int count = 0;
+            while (count < len && window != null) {
+                if (!window.hasRemaining()) {
+                    long nextStart = ++windowIndex * WINDOW_SIZE;
+                    window = nextStart < end ? view(windowIndex, nextStart) : null;
+                    continue;
+                }
+                while (count < len && window.hasRemaining()) {
+                    char c = (char) (window.get() & 0xFF);
+                    if (c != '\n' && c != '\r')
+                        cbuf[off + count++] = c;
+                }
+            }
+            return count == 0 && len > 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+            window = null;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes encoded graphs as FASTA records to a file. Every record consists of a header line
+ * {@code >id encoding=<encoding class> preserveOrder=<true|false>} and the DNA sequence in lines of 80 bases.
+ * Files can be read with {@link FastaGraphReader}.
+ */
+public class FastaGraphWriter implements Closeable {
+    static final String ENCODING_KEY = "encoding=";
+    static final String PRESERVE_ORDER_KEY = "preserveOrder=";
+    private static final int LINE_LENGTH = 80;
+
+    private final FileChannel channel;
+    private final ChannelAppendable out;
+    private final LineWrapper sequenceOut;
+
+    /**
+     * Creates the file or truncates it if it exists.
+     *
+     * @param path path of the FASTA file
+     * @throws IOException if the file cannot be opened
+     */
+    public FastaGraphWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        out = new ChannelAppendable(channel);
+        sequenceOut = new LineWrapper(out);
+    }
+
+    /**
+     * Encodes a graph and appends it as record to the file. The sequence is streamed to the file and never
+     * held in memory as a whole.
+     *
+     * @param id identifier of the graph, must consist of printable ASCII characters without whitespace
+     * @param graph a {@link Graph} object
+     * @param encoding the instance of an {@link GraphEncoding} implementation, must have a public no-arg constructor
+     *                 or wrap one in an {@link InstrumentedGraphEncoding}
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @throws IOException if the file cannot be written
+     */
+    public void write(String id, Graph graph, GraphEncoding encoding, boolean preserveOrder) throws IOException {
+        // headers are written and read as ASCII, other characters would not survive the round trip
+        if (id.isEmpty() || id.chars().anyMatch(c -> c <= ' ' || c > '~'))
+            throw new IllegalArgumentException("Invalid record id \"" + id + "\"");
+
+        // the reader instantiates the header class, so record the wrapped encoding
+        GraphEncoding headerEncoding = encoding instanceof InstrumentedGraphEncoding
+                ? ((InstrumentedGraphEncoding) encoding).getDelegate() : encoding;
+        out.append('>').append(id)
+                .append(' ').append(ENCODING_KEY).append(headerEncoding.getClass().getName())
+                .append(' ').append(PRESERVE_ORDER_KEY).append(Boolean.toString(preserveOrder))
+                .append('\n');
+        encoding.write(graph, preserveOrder, sequenceOut);
+        sequenceOut.endLine();
+    }
+
+    /**
+     * Writes all buffered records and closes the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Breaks the appended characters into lines of fixed length.
+     */
+    private static class LineWrapper implements Appendable {
+        private final Appendable out;
+        private int column;
+
+        /**
+         * @param out output the lines are written to
+         */
+        private LineWrapper(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (column == LINE_LENGTH) {
+                out.append('\n');
+                column = 0;
+            }
+            out.append(c);
+            column++;
+            return this;
+        }
+
+        /**
+         * Terminates the current line, even if it is empty.
+         *
+         * @throws IOException if the output throws
+         */
+        private void endLine() throws IOException {
+            out.append('\n');
+            column = 0;
+        }
+    }
+}
@@ -1,117 +1,312 @@
 package de.unijena.DNAGraphUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Collections;
-import static de.unijena.DNAGraphUtils.DNAHelper.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.stream.IntStream;
 
 /**
  * Implements {@link GraphEncoding}. Uses a fixed length for each vertex to encode adjacency list.
+ * Because every vertex code has the same length, the edges of an encoded sequence can be accessed at computed
+ * offsets with {@link EdgeIndex} and decoded in parallel with {@link #loadParallel(Graph, CharSequence)}.
  */
 public class FixedLengthGraphEncoding implements GraphEncoding {
+    // edges per parallel task
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 14;
+
     /**
-     * Encodes a graph to a DNA sequence with the option to preserve the current vertex order.
+     * Implements {@link GraphEncoding#write(Graph, boolean, Appendable)}.
      *
      * @param graph a {@link Graph} object
      * @param preserveOrder indicates whether the order needs to be preserved
-     * @return DNA sequence of the graph
+     * @param result {@link Appendable} the DNA sequence will be appended to
+     * @throws IOException if the output throws
      */
-    public String toString(Graph graph, boolean preserveOrder) {
-        StringBuilder result = new StringBuilder();
-        if (graph.getVertices().isEmpty())
-            return "C";
-        HashSet<Integer> usedVerts = new HashSet<>();
-        for (Pair<Integer,Integer> edge:graph.getEdges()) {
-            usedVerts.add(edge.getV1());
-            usedVerts.add(edge.getV2());
-        }
-        if (graph.getEdges().isEmpty() || usedVerts.isEmpty()){
+    public void write(Graph graph, boolean preserveOrder, Appendable result) throws IOException {
+        int vertCount = graph.getVertexCount();
+        int edgeCount = graph.getEdgeCount();
+        if (vertCount == 0) {
             result.append('C');
-            result.append(toDNA(graph.getVertices().size(), 4));
-            return result.toString();
+            return;
+        }
+        boolean[] usedVerts = new boolean[vertCount];
+        int usedVertsCount = 0;
+        for (int i = 0; i < edgeCount; i++) {
+            int source = graph.getVertexPosition(graph.getEdgeSource(i));
+            int target = graph.getVertexPosition(graph.getEdgeTarget(i));
+            if (!usedVerts[source]) {
+                usedVerts[source] = true;
+                usedVertsCount++;
+            }
+            if (!usedVerts[target]) {
+                usedVerts[target] = true;
+                usedVertsCount++;
+            }
+        }
+        if (edgeCount == 0 || usedVertsCount == 0){
+            DNABuffer out = new DNABuffer(result);
+            out.append('C');
+            out.appendDNA(vertCount, 4);
+            out.flush();
+            return;
         }
-        int uselessVertsCount = graph.getVertices().size() - usedVerts.size();
+        int uselessVertsCount = vertCount - usedVertsCount;
 
         int lastUsedVert = 0;
-        Map<Integer, Integer> vertToRepr = new HashMap<>();
-        ArrayList<Integer> vertices = graph.getVertices();
-        for (int i = 0; i < vertices.size(); i++) {
-            Integer vert = vertices.get(i);
-            boolean isUsed = usedVerts.contains(vert);
-            if (isUsed) {
-                vertToRepr.put(vert, vertToRepr.size() + 1);
+        int[] vertToRepr = new int[vertCount];
+        int nextRepr = 1;
+        for (int i = 0; i < vertCount; i++) {
+            if (usedVerts[i]) {
+                vertToRepr[i] = nextRepr++;
                 lastUsedVert = i;
             } else if (preserveOrder) {
-                vertToRepr.put(vert, vertToRepr.size() + 1);
+                vertToRepr[i] = nextRepr++;
             }
         }
         // log4
-        int reprLength = (int)Math.ceil(Math.log(preserveOrder ? graph.getVertices().size() : usedVerts.size()) + 1 / Math.log(4));
-        result.append(toDNA(0, 4, reprLength));
-        result.append('C');
-        for (Pair<Integer,Integer> edge:graph.getEdges()){
-            result.append(toDNA(vertToRepr.get(edge.getV1()), 4, reprLength));
-            result.append(toDNA(vertToRepr.get(edge.getV2()), 4, reprLength));
+        int reprLength = (int)Math.ceil(Math.log(preserveOrder ? vertCount : usedVertsCount) + 1 / Math.log(4));
+        DNABuffer out = new DNABuffer(result);
+        out.appendDNA(0, 4, reprLength);
+        out.append('C');
+        for (int i = 0; i < edgeCount; i++) {
+            out.appendDNA(vertToRepr[graph.getVertexPosition(graph.getEdgeSource(i))], 4, reprLength);
+            out.appendDNA(vertToRepr[graph.getVertexPosition(graph.getEdgeTarget(i))], 4, reprLength);
         }
 
-        result.append(toDNA(0, 4, reprLength));
+        out.appendDNA(0, 4, reprLength);
         if (preserveOrder)
-            result.append(toDNA(graph.getVertices().size() - lastUsedVert - 1, 4));
+            out.appendDNA(vertCount - lastUsedVert - 1, 4);
         else
-            result.append(toDNA(uselessVertsCount, 4));
-
-        return result.toString();
+            out.appendDNA(uselessVertsCount, 4);
+        out.flush();
     }
 
     /**
-     * Implements {@link GraphEncoding#load(Graph, String)}.
+     * Implements {@link GraphEncoding#load(Graph, Reader)}.
      *
      * @param graph a {@link Graph} object
-     * @param repr the DNA sequence of a graph
+     * @param in reader the DNA sequence of a graph will be read from
+     * @throws IOException if the reader throws
      */
-    public void load(Graph graph, String repr) {
-        String header = findFirstOccurrence(repr, "^A*C");
-        int vertReprLength = header.length() - 1;
+    public void load(Graph graph, Reader in) throws IOException {
+        SequenceReader reader = new SequenceReader(in);
+        int vertReprLength = 0;
+        while (reader.peek() == 'A') {
+            reader.read();
+            vertReprLength++;
+        }
+        reader.expect('C');
         if (vertReprLength == 0){
-            int vertCount = parseDNA(repr.substring(1),4);
-            for (int i = 0; i < vertCount; i++) {
-                graph.getVertices().add(i);
-            }
+            // a lone 'C' is the empty graph
+            int vertCount = reader.peek() < 0 ? 0 : reader.readDNA(4);
+            graph.setVertices(range(0, vertCount));
             return;
         }
-        String zeroVert = header.substring(0, header.length() - 1);
-        Map<String, Integer> vertReprToVert = new HashMap<>();
 
-        int maxVert = 0;
-        int i;
-        for (i = header.length(); i + vertReprLength * 2 <= repr.length(); i += vertReprLength * 2) {
-            String firstVert = repr.substring(i, i + vertReprLength);
-            if (firstVert.equals(zeroVert))
+        // the encoder numbers the vertices from 1 without gaps, every vertex up to the largest one
+        // belongs to the graph, so the vertices need no bookkeeping besides the maximum
+        int maxVert = -1;
+        while (true) {
+            // the zero vert terminates the edges
+            int firstVert = reader.readDNA(4, vertReprLength) - 1;
+            if (firstVert == -1)
                 break;
-            String secondVert = repr.substring(i + vertReprLength, i + 2 * vertReprLength);
-            if (!vertReprToVert.containsKey(firstVert)) {
-                vertReprToVert.put(firstVert, parseDNA(firstVert, 4) - 1);
-                graph.getVertices().add(vertReprToVert.get(firstVert));
+            int secondVert = reader.readDNA(4, vertReprLength) - 1;
+            if (secondVert == -1)
+                throw new IllegalArgumentException("Edge ends with the terminator");
+            maxVert = Math.max(maxVert, Math.max(firstVert, secondVert));
+            graph.addEdge(firstVert, secondVert);
+        }
+
+        int tailVerts = reader.readDNA(4);
+        graph.setVertices(range(0, maxVert + 1 + tailVerts));
+    }
+
+    /**
+     * @param start first number (inclusive)
+     * @param end last number (exclusive)
+     * @return ascending numbers from start to end
+     */
+    private static int[] range(int start, int end) {
+        int[] numbers = new int[Math.max(0, end - start)];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = start + i;
+        }
+        return numbers;
+    }
+
+    /**
+     * Decodes a sequence like {@link #load(Graph, CharSequence)}, but splits the edges into chunks
+     * which are decoded in parallel.
+     *
+     * @param graph a {@link Graph} object
+     * @param repr the DNA sequence of a graph, it must not be modified while decoding
+     */
+    public void loadParallel(Graph graph, CharSequence repr) {
+        EdgeIndex index = new EdgeIndex(repr);
+        int edgeCount = index.getEdgeCount();
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        int chunkCount = (edgeCount + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE;
+        // the chunks fill disjoint parts of the arrays, only the maximal vertex has to be merged
+        int maxVert = IntStream.range(0, chunkCount).parallel().map(chunk -> {
+            int from = chunk * PARALLEL_CHUNK_SIZE;
+            int to = Math.min(edgeCount, from + PARALLEL_CHUNK_SIZE);
+            return index.getEdges(from, to, sources, targets, from);
+        }).max().orElse(-1);
+        graph.setVertices(range(0, index.getVertexCount(maxVert)));
+        graph.setEdges(sources, targets);
+    }
+
+    /**
+     * Random access to the edges of a sequence written by {@link FixedLengthGraphEncoding}.
+     * Edge i starts at a computed offset, so it is decoded without reading the edges before it.
+     * Creating the index only reads the header and the end of the sequence.
+     */
+    public static class EdgeIndex {
+        // a vertex count in radix 4 has at most 16 bases
+        private static final int MAX_TAIL_LENGTH = 16;
+
+        private final CharSequence sequence;
+        private final int reprLength;
+        private final int edgeCount;
+        private final int tailStart;
+
+        /**
+         * @param sequence the DNA sequence of a graph, it is not copied
+         */
+        public EdgeIndex(CharSequence sequence) {
+            this.sequence = sequence;
+            int length = 0;
+            while (length < sequence.length() && sequence.charAt(length) == 'A') {
+                length++;
+            }
+            if (length == sequence.length() || sequence.charAt(length) != 'C')
+                throw new IllegalArgumentException("Expected 'C' behind the code length");
+            reprLength = length;
+            if (reprLength == 0) {
+                edgeCount = 0;
+                tailStart = 1;
+                return;
             }
-            if (!vertReprToVert.containsKey(secondVert)) {
-                vertReprToVert.put(secondVert, parseDNA(secondVert, 4) - 1);
-                graph.getVertices().add(vertReprToVert.get(secondVert));
+
+            // edges, a zero code and the tail follow the header, the tail is short, so only a few edge counts
+            // are possible; the zero code is the first one at an edge position
+            int edgesStart = reprLength + 1;
+            if (sequence.length() < edgesStart + reprLength + 1)
+                throw new IllegalArgumentException("Missing end of the edges");
+            int edgeLength = 2 * reprLength;
+            int maxCount = (sequence.length() - edgesStart - reprLength - 1) / edgeLength;
+            int minCount = Math.max(0, (sequence.length() - edgesStart - reprLength - MAX_TAIL_LENGTH) / edgeLength);
+            int count = -1;
+            for (int i = minCount; i <= maxCount; i++) {
+                if (isZero(edgesStart + i * edgeLength)) {
+                    count = i;
+                    break;
+                }
+            }
+            if (count < 0)
+                throw new IllegalArgumentException("Missing end of the edges");
+            edgeCount = count;
+            tailStart = edgesStart + count * edgeLength + reprLength;
+        }
+
+        /**
+         * @param offset position of a vertex code
+         * @return true if the code consists of A's only
+         */
+        private boolean isZero(int offset) {
+            for (int i = offset; i < offset + reprLength; i++) {
+                if (sequence.charAt(i) != 'A')
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return count of bases of every vertex code
+         */
+        public int getReprLength() {
+            return reprLength;
+        }
+
+        /**
+         * @return count of encoded edges
+         */
+        public int getEdgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * @param i index of an edge
+         * @return first vertex of the edge
+         */
+        public int getEdgeSource(int i) {
+            return readVert(checkIndex(i), 0);
+        }
+
+        /**
+         * @param i index of an edge
+         * @return second vertex of the edge
+         */
+        public int getEdgeTarget(int i) {
+            return readVert(checkIndex(i), 1);
+        }
+
+        /**
+         * Decodes a range of edges.
+         *
+         * @param from index of the first edge (inclusive)
+         * @param to index of the last edge (exclusive)
+         * @param sources array the first vertices are written to
+         * @param targets array the second vertices are written to
+         * @param offset position in the arrays for the first edge
+         * @return the largest decoded vertex or -1 if the range is empty
+         */
+        public int getEdges(int from, int to, int[] sources, int[] targets, int offset) {
+            if (from < 0 || to > edgeCount || from > to)
+                throw new IndexOutOfBoundsException("Edges " + from + " to " + to + " of " + edgeCount);
+            int maxVert = -1;
+            for (int i = from; i < to; i++) {
+                int source = readVert(i, 0);
+                int target = readVert(i, 1);
+                sources[offset + i - from] = source;
+                targets[offset + i - from] = target;
+                maxVert = Math.max(maxVert, Math.max(source, target));
             }
-            maxVert = Math.max(maxVert, Math.max(vertReprToVert.get(firstVert), vertReprToVert.get(secondVert)));
-            graph.getEdges().add(new Pair<>(vertReprToVert.get(firstVert), vertReprToVert.get(secondVert)));
+            return maxVert;
         }
-        i += vertReprLength;
-        for (int j = 0; j < maxVert; j++) {
-            if (!graph.getVertices().contains(j))
-                graph.getVertices().add(j);
+
+        /**
+         * @param maxVert the largest vertex of all edges or -1 if there are none
+         * @return count of vertices of the decoded graph, see {@link FixedLengthGraphEncoding#load(Graph, Reader)}
+         */
+        private int getVertexCount(int maxVert) {
+            // a lone 'C' is the empty graph
+            if (reprLength == 0 && tailStart == sequence.length())
+                return 0;
+            return maxVert + 1 + DNAHelper.parseDNA(sequence, tailStart, sequence.length() - tailStart, 4);
+        }
+
+        /**
+         * @param i index of an edge
+         * @param side 0 for the first and 1 for the second vertex
+         * @return the decoded vertex
+         */
+        private int readVert(int i, int side) {
+            int vert = DNAHelper.parseDNA(sequence, reprLength + 1 + (2 * i + side) * reprLength, reprLength, 4) - 1;
+            if (vert < 0)
+                throw new IllegalArgumentException("Edge " + i + " contains the zero code");
+            return vert;
         }
 
-        int tailVerts = parseDNA(repr.substring(i), 4);
-        for (int j = 0; j < tailVerts; j++) {
-            graph.getVertices().add(graph.getVertices().size());
+        /**
+         * @param i index of an edge
+         * @return the index if it is valid
+         */
+        private int checkIndex(int i) {
+            if (i < 0 || i >= edgeCount)
+                throw new IndexOutOfBoundsException("Edge " + i + " of " + edgeCount);
+            return i;
         }
-        Collections.sort(graph.getVertices());
     }
 }
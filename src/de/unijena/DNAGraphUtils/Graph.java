@@ -1,18 +1,26 @@
 package de.unijena.DNAGraphUtils;
 
-import java.util.ArrayList;
-import java.util.Map;
-
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Contains important aspects of a classical graph.
  * Provides method to test for graph isomorphism.
+ * Vertices and edges are stored in primitive int arrays, the edge i goes from sources[i] to targets[i].
+ * The list based getters are views on these arrays.
  */
 public class Graph {
-    private ArrayList<Integer> vertices;
-    private ArrayList<Pair<Integer, Integer>> edges;
+    private int[] vertices;
+    private int vertexCount;
+    private int[] sources;
+    private int[] targets;
+    private int edgeCount;
+    private int[] vertexPositions;
+    private AdjacencyIndex adjacencyIndex;
 
     /**
      * Decodes the representation to a Graph object with the given encoding.
@@ -25,11 +33,34 @@ public class Graph {
         encoding.load(this, repr);
     }
 
+    /**
+     * Decodes the packed representation to a Graph object with the given encoding.
+     *
+     * @param sequence DNA sequence of a Graph object
+     * @param encoding the instance of an {@link GraphEncoding} implementation
+     */
+    public Graph(DnaSequence sequence, GraphEncoding encoding) {
+        this();
+        encoding.load(this, sequence);
+    }
+
+    /**
+     * Decodes the representation read from a reader to a Graph object with the given encoding.
+     *
+     * @param in reader the DNA sequence of a Graph object will be read from, it is not closed
+     * @param encoding the instance of an {@link GraphEncoding} implementation
+     * @throws IOException if the reader throws
+     */
+    public Graph(Reader in, GraphEncoding encoding) throws IOException {
+        this();
+        encoding.load(this, in);
+    }
+
     /**
      * Creates an empty instance of a Graph.
      */
     public Graph() {
-        this(new ArrayList<>(), new ArrayList<>());
+        this(new int[0], new int[0], new int[0]);
     }
 
     /**
@@ -38,23 +69,143 @@ public class Graph {
      * @param vertices list of integer (belongs to a graph)
      * @param edges list of integer pairs (belongs to a graph)
      */
-    public Graph(ArrayList<Integer> vertices, ArrayList<Pair<Integer, Integer>> edges){
-        this.vertices = vertices;
-        this.edges = edges;
+    public Graph(List<Integer> vertices, List<Pair<Integer, Integer>> edges){
+        this();
+        setVertices(vertices);
+        setEdges(edges);
+    }
+
+    /**
+     * Creates a new Graph backed by the given arrays. The arrays are not copied.
+     *
+     * @param vertices all vertices of the graph
+     * @param sources source vertex of every edge
+     * @param targets target vertex of every edge, must have the same length as sources
+     */
+    public Graph(int[] vertices, int[] sources, int[] targets){
+        setVertices(vertices);
+        setEdges(sources, targets);
+    }
+
+    /**
+     * @return the vertices of the Graph object as modifiable view
+     */
+    public List<Integer> getVertices() {
+        return new VertexList();
+    }
+
+    /**
+     * The returned pairs are copies, changing them does not change the graph.
+     * Use {@link List#set(int, Object)} on the view instead.
+     *
+     * @return the edges of the Graph object as modifiable view
+     */
+    public List<Pair<Integer, Integer>> getEdges() {
+        return new EdgeList();
+    }
+
+    /**
+     * @return count of vertices in the Graph object
+     */
+    public int getVertexCount() {
+        return vertexCount;
     }
 
     /**
-     * @return the vertices of the Graph object
+     * @param index position of the vertex
+     * @return the vertex at the given position
      */
-    public ArrayList<Integer> getVertices() {
-        return vertices;
+    public int getVertex(int index) {
+        return vertices[index];
     }
 
     /**
-     * @return the edges of the Graph object
+     * @return count of edges in the Graph object
      */
-    public ArrayList<Pair<Integer, Integer>> getEdges() {
-        return edges;
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @param index position of the edge
+     * @return first vertex of the edge at the given position
+     */
+    public int getEdgeSource(int index) {
+        return sources[index];
+    }
+
+    /**
+     * @param index position of the edge
+     * @return second vertex of the edge at the given position
+     */
+    public int getEdgeTarget(int index) {
+        return targets[index];
+    }
+
+    /**
+     * Appends a vertex to the Graph object.
+     *
+     * @param vert vertex to add
+     */
+    public void addVertex(int vert) {
+        if (vertexCount == vertices.length)
+            vertices = Arrays.copyOf(vertices, grow(vertices.length));
+        vertices[vertexCount++] = vert;
+        vertexPositions = null;
+        adjacencyIndex = null;
+    }
+
+    /**
+     * Appends an edge to the Graph object.
+     *
+     * @param source first vertex of the edge
+     * @param target second vertex of the edge
+     */
+    public void addEdge(int source, int target) {
+        if (edgeCount == sources.length) {
+            sources = Arrays.copyOf(sources, grow(sources.length));
+            targets = Arrays.copyOf(targets, sources.length);
+        }
+        sources[edgeCount] = source;
+        targets[edgeCount] = target;
+        edgeCount++;
+        adjacencyIndex = null;
+    }
+
+    /**
+     * Looks up at which position a vertex is stored. Vertices must not be negative.
+     *
+     * @param vert vertex to look up
+     * @return position of the vertex in the vertex list or -1 if the vertex is not in the graph
+     */
+    public int getVertexPosition(int vert) {
+        if (vertexPositions == null) {
+            int maxVert = -1;
+            for (int i = 0; i < vertexCount; i++) {
+                if (vertices[i] < 0)
+                    throw new IllegalStateException("Vertices must not be negative");
+                maxVert = Math.max(maxVert, vertices[i]);
+            }
+            int[] positions = new int[maxVert + 1];
+            Arrays.fill(positions, -1);
+            for (int i = vertexCount - 1; i >= 0; i--) {
+                positions[vertices[i]] = i;
+            }
+            vertexPositions = positions;
+        }
+        return vert >= 0 && vert < vertexPositions.length ? vertexPositions[vert] : -1;
+    }
+
+    /**
+     * Returns the compressed sparse row adjacency index of the graph.
+     * The index is built on first use and dropped whenever the graph is changed.
+     *
+     * @return adjacency index of the current graph
+     */
+    public AdjacencyIndex getAdjacencyIndex() {
+        if (adjacencyIndex == null)
+            adjacencyIndex = new AdjacencyIndex(this);
+        return adjacencyIndex;
     }
 
     /**
@@ -76,186 +227,288 @@ public class Graph {
     }
 
     /**
-     * Sets the vertices of the Graph object.
+     * Encodes a graph to a 2 bit packed DNA sequence with the option to preserve the current vertex order.
      *
-     * @param vertices list of integer (belongs to a graph)
+     * @param code the instance of an {@link GraphEncoding} implementation
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return DNA sequence of the graph
      */
-    public void setVertices(ArrayList<Integer> vertices) {
-        this.vertices = vertices;
+    public DnaSequence toDnaSequence(GraphEncoding code, boolean preserveOrder) {
+        return code.toDnaSequence(this, preserveOrder);
     }
 
     /**
-     * Sets the edges of the Graph object.
+     * Encodes the graph and appends the DNA sequence to the output without building it in memory.
      *
-     * @param edges list of integer pairs (belongs to a graph)
+     * @param code the instance of an {@link GraphEncoding} implementation
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param out {@link Appendable} (e.g. a {@link java.io.Writer}) the DNA sequence will be appended to
+     * @throws IOException if the output throws
      */
-    public void setEdges(ArrayList<Pair<Integer, Integer>> edges) {
-        this.edges = edges;
+    public void write(GraphEncoding code, boolean preserveOrder, Appendable out) throws IOException {
+        code.write(this, preserveOrder, out);
     }
 
     /**
-     * Searches for all vertices in g2 the vertices in g1 with same frequencies.
-     * Saves this found vertices as possible translations.
+     * Encodes the canonical form of the graph, see {@link GraphEncoding#toCanonicalString(Graph, boolean)}.
+     * Isomorphic graphs result in identical DNA sequences.
      *
-     * @param g1Frequencies frequencies of all vertices in edges in g1
-     * @param g2Frequencies frequencies of all vertices in edges in g2
-     * @return the possible translations for all vertices in g2
+     * @param code the instance of an {@link GraphEncoding} implementation
+     * @param preserveOrder indicates whether the order of the canonical form needs to be preserved
+     * @return DNA sequence of the canonical form
      */
-    private ArrayList<ArrayList<Integer>> findPossibleVerticesTranslations(int[] g1Frequencies, int[] g2Frequencies) {
-        ArrayList<ArrayList<Integer>> secVerticesPossibleTranslations = new ArrayList<>();
-
-        for (int g2Frequency : g2Frequencies) {
-            ArrayList<Integer> possibleTranslations = new ArrayList<>();
+    public String toCanonicalString(GraphEncoding code, boolean preserveOrder) {
+        return code.toCanonicalString(this, preserveOrder);
+    }
 
-            for (int j = 0; j < g1Frequencies.length; j++) {
-                if (g2Frequency == g1Frequencies[j]) {
-                    possibleTranslations.add(j);
-                }
+    /**
+     * Relabels the graph canonically, see {@link CanonicalLabeling}.
+     * The canonical form has the vertices 0 to n-1 and its edges are sorted by source and target.
+     * Two graphs are isomorphic if and only if their canonical forms are equal.
+     *
+     * @return a new Graph object with the canonical form of the graph
+     */
+    public Graph getCanonicalForm() {
+        int[] canonicalVertices = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            canonicalVertices[i] = i;
+        }
+        int[] canonicalSources = new int[edgeCount];
+        int[] canonicalTargets = new int[edgeCount];
+
+        if (vertexCount > 0) {
+            long[] certificate = new CanonicalLabeling(getAdjacencyIndex()).getCertificate();
+            for (int i = 0; i < edgeCount; i++) {
+                canonicalSources[i] = (int) (certificate[i] / vertexCount);
+                canonicalTargets[i] = (int) (certificate[i] % vertexCount);
             }
+        }
+
+        return new Graph(canonicalVertices, canonicalSources, canonicalTargets);
+    }
 
-            secVerticesPossibleTranslations.add(possibleTranslations);
+    /**
+     * Sets the vertices of the Graph object.
+     *
+     * @param vertices list of integer (belongs to a graph)
+     */
+    public void setVertices(List<Integer> vertices) {
+        int[] verticesArray = new int[vertices.size()];
+        for (int i = 0; i < verticesArray.length; i++) {
+            verticesArray[i] = vertices.get(i);
         }
-        return secVerticesPossibleTranslations;
+        setVertices(verticesArray);
     }
 
     /**
-     * Goes through all translation combinations and adds the new translation number.
-     * Only adds the resulting combinations, that contains every entry only once to list.
+     * Sets the vertices of the Graph object. The array is not copied.
      *
-     * @param translationCombinations contains combinations of numbers as translations for vertices in g2
-     * @param newTranslationCombinations contains new combinations of numbers as translations for vertices in g2
-     * @param translation contains a number as possible translation for a vert in g2
-     */
-    private void addNewCombinationsToList(ArrayList<ArrayList<Integer>> translationCombinations, ArrayList<ArrayList<Integer>> newTranslationCombinations, Integer translation) {
-        for (ArrayList<Integer> combination : translationCombinations) {
-            ArrayList<Integer> newCombination = new ArrayList<>(combination);
-            newCombination.add(translation);
-
-            Map<Object, Long> numberCount = newCombination.stream().collect(groupingBy(e -> e, counting()));
-            boolean forbiddenCombination = false;
-
-            for (Map.Entry<Object, Long> count : numberCount.entrySet()) {
-                if(count.getValue() > 1){
-                    forbiddenCombination = true;
-                    break;
-                }
-            }
+     * @param vertices all vertices of the graph
+     */
+    public void setVertices(int[] vertices) {
+        this.vertices = vertices;
+        this.vertexCount = vertices.length;
+        this.vertexPositions = null;
+        this.adjacencyIndex = null;
+    }
 
-            if(!forbiddenCombination) {
-                newTranslationCombinations.add(newCombination);
-            }
+    /**
+     * Sets the edges of the Graph object.
+     *
+     * @param edges list of integer pairs (belongs to a graph)
+     */
+    public void setEdges(List<Pair<Integer, Integer>> edges) {
+        int[] sourcesArray = new int[edges.size()];
+        int[] targetsArray = new int[edges.size()];
+        for (int i = 0; i < sourcesArray.length; i++) {
+            Pair<Integer, Integer> edge = edges.get(i);
+            sourcesArray[i] = edge.getV1();
+            targetsArray[i] = edge.getV2();
         }
+        setEdges(sourcesArray, targetsArray);
     }
 
     /**
-     * Adds for every vert in g2 a possible translation to a combination.
-     * Goal is to add this combinations to a list where all possible combinations of the translations are inside.
-     * But only adds combinations that contains every entry only once.
+     * Sets the edges of the Graph object. The arrays are not copied.
      *
-     * @param possibleTranslationsG2Vertices contains for every g2 vert the vertices of g1 into which they could be translated
-     * @return list of all correct translation combinations
+     * @param sources source vertex of every edge
+     * @param targets target vertex of every edge, must have the same length as sources
      */
-    private ArrayList<ArrayList<Integer>> findTranslationCombinations(ArrayList<ArrayList<Integer>> possibleTranslationsG2Vertices) {
-        ArrayList<ArrayList<Integer>> translationCombinations = new ArrayList<>();
+    public void setEdges(int[] sources, int[] targets) {
+        if (sources.length != targets.length)
+            throw new IllegalArgumentException("Sources and targets must have the same length");
+        this.sources = sources;
+        this.targets = targets;
+        this.edgeCount = sources.length;
+        this.adjacencyIndex = null;
+    }
 
-        for (int i = 0; i < possibleTranslationsG2Vertices.size(); i++) {
-            ArrayList<Integer> vertTranslations = possibleTranslationsG2Vertices.get(i);
-            ArrayList<ArrayList<Integer>> newTranslationCombinations = new ArrayList<>();
+    /**
+     * Calculates the new capacity of a full array.
+     *
+     * @param capacity current capacity
+     * @return increased capacity
+     */
+    private static int grow(int capacity) {
+        return Math.max(8, capacity + (capacity >> 1));
+    }
 
-            for (Integer translation : vertTranslations) {
-                if (i == 0) {
-                    ArrayList<Integer> translationList = new ArrayList<>();
-                    translationList.add(translation);
+    /**
+     * Modifiable list view on the vertices array.
+     */
+    private class VertexList extends AbstractList<Integer> implements RandomAccess {
+        @Override
+        public Integer get(int index) {
+            checkIndex(index, vertexCount);
+            return vertices[index];
+        }
 
-                    translationCombinations.add(translationList);
-                } else {
-                    addNewCombinationsToList(translationCombinations, newTranslationCombinations, translation);
-                }
-            }
+        @Override
+        public Integer set(int index, Integer vert) {
+            checkIndex(index, vertexCount);
+            int previous = vertices[index];
+            vertices[index] = vert;
+            vertexPositions = null;
+            adjacencyIndex = null;
+            return previous;
+        }
 
-            int SIZE_LIMIT = 100000;
-            if (newTranslationCombinations.size() > SIZE_LIMIT)
-                throw new RuntimeException("Graphs cant be checked for isomorphism with the implemented algorithm.");
+        @Override
+        public void add(int index, Integer vert) {
+            checkIndex(index, vertexCount + 1);
+            addVertex(vert);
+            System.arraycopy(vertices, index, vertices, index + 1, vertexCount - index - 1);
+            vertices[index] = vert;
+            modCount++;
+        }
 
-            if(!newTranslationCombinations.isEmpty()) {
-                translationCombinations = newTranslationCombinations;
-            }
+        @Override
+        public Integer remove(int index) {
+            checkIndex(index, vertexCount);
+            int previous = vertices[index];
+            removeRange(index, index + 1);
+            return previous;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            System.arraycopy(vertices, toIndex, vertices, fromIndex, vertexCount - toIndex);
+            vertexCount -= toIndex - fromIndex;
+            vertexPositions = null;
+            adjacencyIndex = null;
+            modCount++;
+        }
+
+        @Override
+        public int size() {
+            return vertexCount;
         }
-        return translationCombinations;
     }
 
     /**
-     * With the translation combinations, the vertices in the g2 edge get translated (get new numbers).
-     * If a translation let the edges of g2 be the same as the edges of g1, g1 and g2 are isomorphic.
-     *
-     * @param other the other g2 which will should be tested for isomorphism with the instance this method is operating on.
-     * @param g2Edges all edges in g2
-     * @param translationCombinations contains combinations of numbers as translations for vertices in g2
-     * @return true if a translation of the vertices in g2 let g1 and g2 be isomorphic to each other,
-     *         false if there is no translation to let them be isomorphic
+     * Modifiable list view on the edge arrays.
      */
-    private boolean checkIfIsomorphic(Graph other, ArrayList<Pair<Integer, Integer>> g2Edges, ArrayList<ArrayList<Integer>> translationCombinations) {
-        ArrayList<Pair<Integer, Integer>> prevG2Edges = new ArrayList<>();
+    private class EdgeList extends AbstractList<Pair<Integer, Integer>> implements RandomAccess {
+        @Override
+        public Pair<Integer, Integer> get(int index) {
+            checkIndex(index, edgeCount);
+            return new Pair<>(sources[index], targets[index]);
+        }
 
-        for (Pair<Integer, Integer> edge : g2Edges) {
-            prevG2Edges.add(new Pair<>(edge));
+        @Override
+        public Pair<Integer, Integer> set(int index, Pair<Integer, Integer> edge) {
+            Pair<Integer, Integer> previous = get(index);
+            sources[index] = edge.getV1();
+            targets[index] = edge.getV2();
+            adjacencyIndex = null;
+            return previous;
         }
 
-        for (ArrayList<Integer> combination : translationCombinations) {
-            for (int i = 0; i < prevG2Edges.size(); i++) {
-                Pair<Integer, Integer> prevG2Edge = prevG2Edges.get(i);
-                Pair<Integer, Integer> g2Edge = g2Edges.get(i);
+        @Override
+        public void add(int index, Pair<Integer, Integer> edge) {
+            checkIndex(index, edgeCount + 1);
+            addEdge(edge.getV1(), edge.getV2());
+            System.arraycopy(sources, index, sources, index + 1, edgeCount - index - 1);
+            System.arraycopy(targets, index, targets, index + 1, edgeCount - index - 1);
+            sources[index] = edge.getV1();
+            targets[index] = edge.getV2();
+            modCount++;
+        }
 
-                g2Edge.setV1(combination.get(prevG2Edge.getV1()));
-                g2Edge.setV2(combination.get(prevG2Edge.getV2()));
-            }
+        @Override
+        public Pair<Integer, Integer> remove(int index) {
+            Pair<Integer, Integer> previous = get(index);
+            removeRange(index, index + 1);
+            return previous;
+        }
 
-            if(this.toString().equals(other.toString())){
-                return true;
-            }
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            System.arraycopy(sources, toIndex, sources, fromIndex, edgeCount - toIndex);
+            System.arraycopy(targets, toIndex, targets, fromIndex, edgeCount - toIndex);
+            edgeCount -= toIndex - fromIndex;
+            adjacencyIndex = null;
+            modCount++;
         }
 
-        return false;
+        @Override
+        public int size() {
+            return edgeCount;
+        }
+    }
+
+    /**
+     * Checks if an index lies in the range [0, size).
+     *
+     * @param index index to check
+     * @param size exclusive upper bound
+     */
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
     }
 
     /**
      * Checks if de.unijena.DNAGraphUtils.Graph "this" as g1 and "other" as g2 are isomorphic to each other.
-     * Translates the vert numbers of the edges in g2 depending on the vert numbers of the edges in g1.
-     * This happens based on the frequencies of the nodes.
+     * First both graphs are coloured by {@link ColourRefinement}, graphs with different colour histograms are rejected.
+     * Otherwise the vertices of g1 are mapped one after another onto the vertices of g2 with the same colour
+     * by a depth first search, see {@link IsomorphismMatcher}. Parallel edges and self loops are taken into account.
      *
      * @param other a de.unijena.DNAGraphUtils.Graph with vertices and edges
      * @return true if g1 and g2 are isomorphic to each other, false if not
      */
     public boolean isIsomorphicTo(Graph other){
-        if (this.getEdges().size() != other.getEdges().size()
-                || this.getVertices().size() != other.getVertices().size()) {
+        if (this.edgeCount != other.edgeCount || this.vertexCount != other.vertexCount) {
             return false;
         }
 
-        if(this.toString().equals(other.toString())){
+        if (startsEqual(this.vertices, other.vertices, vertexCount)
+                && startsEqual(this.sources, other.sources, edgeCount)
+                && startsEqual(this.targets, other.targets, edgeCount)) {
             return true;
         }
 
+        AdjacencyIndex g1 = this.getAdjacencyIndex();
+        AdjacencyIndex g2 = other.getAdjacencyIndex();
+        ColourRefinement g1Colours = new ColourRefinement(g1);
+        ColourRefinement g2Colours = new ColourRefinement(g2);
+        if (!ColourRefinement.refineTogether(g1Colours, g2Colours))
+            return false;
 
-        int[] g1Frequencies = new int[this.getVertices().size()];
-        int[] g2Frequencies = new int[other.getVertices().size()];
-        ArrayList<Pair<Integer, Integer>> g1Edges = this.getEdges();
-        ArrayList<Pair<Integer, Integer>> g2Edges = other.getEdges();
-
-        for (Pair<Integer, Integer> edge : g1Edges) {
-            ++g1Frequencies[edge.getV1()];
-            ++g1Frequencies[edge.getV2()];
-        }
+        return new IsomorphismMatcher(g1, g2, g1Colours.getColours(), g2Colours.getColours()).match();
+    }
 
-        for (Pair<Integer, Integer> edge : g2Edges) {
-            ++g2Frequencies[edge.getV1()];
-            ++g2Frequencies[edge.getV2()];
+    /**
+     * @param arr1 first array
+     * @param arr2 second array
+     * @param length count of elements to compare
+     * @return true if the first length elements of both arrays are equal
+     */
+    private static boolean startsEqual(int[] arr1, int[] arr2, int length) {
+        for (int i = 0; i < length; i++) {
+            if (arr1[i] != arr2[i])
+                return false;
         }
-
-        ArrayList<ArrayList<Integer>> possibleTranslationsG2Vertices = findPossibleVerticesTranslations(g1Frequencies, g2Frequencies);
-
-        ArrayList<ArrayList<Integer>> translationCombinations = findTranslationCombinations(possibleTranslationsG2Vertices);
-
-        return checkIfIsomorphic(other, g2Edges, translationCombinations);
+        return true;
     }
 }
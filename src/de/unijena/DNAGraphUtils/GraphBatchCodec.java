@@ -0,0 +1,247 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Encodes and decodes batches of graphs in parallel on a {@link ForkJoinPool}.
+ * The batch is split recursively into ranges, idle workers steal the remaining ranges of busy ones.
+ * The results keep the order of the batch, a failing graph or sequence does not abort the batch,
+ * its exception is stored in its {@link Result}.
+ * The encodings are stateless, so all workers share one instance without locking.
+ */
+public class GraphBatchCodec {
+    // items per task which is not split any further
+    private static final int SEQUENTIAL_THRESHOLD = 16;
+    // scratch buffers larger than this are not kept for the next graph
+    private static final int MAX_SCRATCH_CAPACITY = 1 << 20;
+
+    private final GraphEncoding encoding;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<StringBuilder> scratch = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * Creates a codec which runs on the common pool.
+     *
+     * @param encoding the instance of an {@link GraphEncoding} implementation
+     */
+    public GraphBatchCodec(GraphEncoding encoding) {
+        this(encoding, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param encoding the instance of an {@link GraphEncoding} implementation
+     * @param pool pool the batches will be processed on
+     */
+    public GraphBatchCodec(GraphEncoding encoding, ForkJoinPool pool) {
+        this.encoding = encoding;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the encoding of the codec
+     */
+    public GraphEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Encodes all graphs.
+     *
+     * @param graphs graphs which will be encoded, they must not be modified while encoding
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return one result per graph in the order of the collection
+     */
+    public List<Result<String>> encode(Collection<Graph> graphs, boolean preserveOrder) {
+        Graph[] items = graphs.toArray(new Graph[0]);
+        List<Result<String>> results = newResultList(items.length);
+        run(items.length, i -> results.set(i, encode(i, items[i], preserveOrder)));
+        return results;
+    }
+
+    /**
+     * Encodes all graphs of a stream. The stream is collected first, so the results keep its encounter order.
+     *
+     * @param graphs graphs which will be encoded
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return one result per graph in the order of the stream
+     */
+    public List<Result<String>> encode(Stream<Graph> graphs, boolean preserveOrder) {
+        return encode(graphs.collect(Collectors.toList()), preserveOrder);
+    }
+
+    /**
+     * Decodes all sequences.
+     *
+     * @param sequences DNA sequences of graphs, they must not be modified while decoding
+     * @return one result per sequence in the order of the collection
+     */
+    public List<Result<Graph>> decode(Collection<? extends CharSequence> sequences) {
+        CharSequence[] items = sequences.toArray(new CharSequence[0]);
+        List<Result<Graph>> results = newResultList(items.length);
+        run(items.length, i -> results.set(i, decode(i, items[i])));
+        return results;
+    }
+
+    /**
+     * Decodes all sequences of a stream. The stream is collected first, so the results keep its encounter order.
+     *
+     * @param sequences DNA sequences of graphs
+     * @return one result per sequence in the order of the stream
+     */
+    public List<Result<Graph>> decode(Stream<? extends CharSequence> sequences) {
+        return decode(sequences.collect(Collectors.toList()));
+    }
+
+    /**
+     * Encodes one graph into the scratch buffer of the current thread.
+     *
+     * @param index position of the graph in the batch
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return the result of the graph
+     */
+    private Result<String> encode(int index, Graph graph, boolean preserveOrder) {
+        StringBuilder sb = scratch.get();
+        try {
+            sb.setLength(0);
+            encoding.write(graph, preserveOrder, sb);
+            return new Result<>(index, sb.toString(), null);
+        } catch (IOException | RuntimeException e) {
+            return new Result<>(index, null, e);
+        } finally {
+            if (sb.capacity() > MAX_SCRATCH_CAPACITY)
+                scratch.remove();
+        }
+    }
+
+    /**
+     * @param index position of the sequence in the batch
+     * @param sequence DNA sequence of a graph
+     * @return the result of the sequence
+     */
+    private Result<Graph> decode(int index, CharSequence sequence) {
+        try {
+            Graph graph = new Graph();
+            encoding.load(graph, sequence);
+            return new Result<>(index, graph, null);
+        } catch (RuntimeException e) {
+            return new Result<>(index, null, e);
+        }
+    }
+
+    /**
+     * @param size count of items
+     * @param <T> type of the results
+     * @return list of the given size filled with null
+     */
+    private static <T> List<Result<T>> newResultList(int size) {
+        return new ArrayList<>(Collections.nCopies(size, null));
+    }
+
+    /**
+     * Runs the action for every index on the pool and waits until all are done.
+     *
+     * @param size count of items
+     * @param action action for a single index, it must not throw
+     */
+    private void run(int size, IntConsumer action) {
+        if (size > 0)
+            pool.invoke(new RangeTask(0, size, action));
+    }
+
+    /**
+     * Processes a range of items, large ranges are split into halves which can be stolen by other workers.
+     */
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        /**
+         * @param from first index (inclusive)
+         * @param to last index (exclusive)
+         * @param action action for a single index
+         */
+        private RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, action), new RangeTask(middle, to, action));
+        }
+    }
+
+    /**
+     * Outcome of one item of a batch, either a value or the exception which occurred.
+     *
+     * @param <T> type of the value
+     */
+    public static class Result<T> {
+        private final int index;
+        private final T value;
+        private final Exception error;
+
+        /**
+         * @param index position of the item in the batch
+         * @param value the value or null if an error occurred
+         * @param error the exception or null if the item succeeded
+         */
+        private Result(int index, T value, Exception error) {
+            this.index = index;
+            this.value = value;
+            this.error = error;
+        }
+
+        /**
+         * @return position of the item in the batch
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return true if the item was processed without an exception
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return the encoded sequence or decoded graph
+         * @throws IllegalStateException if the item failed, the cause is the original exception
+         */
+        public T getValue() {
+            if (error != null)
+                throw new IllegalStateException("Item " + index + " failed", error);
+            return value;
+        }
+
+        /**
+         * @return the exception of the item or null if it succeeded
+         */
+        public Exception getError() {
+            return error;
+        }
+    }
+}
@@ -1,19 +1,56 @@
 package de.unijena.DNAGraphUtils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntSupplier;
 
 /**
  * Benchmarks implementations of {@link GraphEncoding}.
  * Contains method to check for isomorphism with random graphs.
  * Contains method to generate for different implementations DNA sequences.
+ * Contains method to measure how the encode and decode time of implementations scales with the graph size.
  */
 public class GraphBenchmark {
+    // the sweep grows the graphs by a factor of sqrt(10) per step
+    private static final double SWEEP_GROWTH = Math.sqrt(10);
+    private static final int SWEEP_MIN_VERTICES = 10;
+    // smaller graphs are measured, but left out of the fit, their times are dominated by constant costs
+    private static final int FIT_MIN_VERTICES = 100;
+    // fits of fewer graphs are too noisy to be reported
+    private static final int FIT_MIN_POINTS = 4;
+    // a series stops before a step which would take longer or produce a longer sequence
+    private static final long MAX_OPERATION_NANOS = 5_000_000_000L;
+    private static final long MAX_SEQUENCE_LENGTH = 1L << 27;
+    private static final long WARMUP_NANOS = 100_000_000L;
+    private static final long SAMPLE_NANOS = 10_000_000L;
+    private static final long MAX_MEASURE_NANOS = 1_000_000_000L;
+    private static final int SAMPLE_COUNT = 5;
+    // allowed increase of an exponent over its baseline before it counts as regression,
+    // on top of the given multiple of the combined standard error of both exponents
+    private static final double REGRESSION_TOLERANCE = 0.2;
+    private static final double REGRESSION_STANDARD_ERRORS = 2;
+    // keeps the results of measured operations alive, so they cannot be optimized away
+    private static volatile long sink;
+
     /**
      * Creates a {@link Graph} object with the verticesNumber and edgeNumber.
      * Creates the edges with random vertices (uniformly distributed).
@@ -26,21 +63,20 @@ public class GraphBenchmark {
     public static Graph createGraph(int verticesNumber, int edgeNumber, Random rand){
         if (rand == null)
             rand = new Random();
-        ArrayList<Integer> vertices = new ArrayList<>();
-        ArrayList<Pair<Integer, Integer>> edges = new ArrayList<>();
+        int[] vertices = new int[verticesNumber];
+        int[] sources = new int[edgeNumber];
+        int[] targets = new int[edgeNumber];
 
         for (int i = 0; i < verticesNumber; i++) {
-            vertices.add(i);
+            vertices[i] = i;
         }
 
         for (int i = 0; i < edgeNumber; i++) {
-            Integer ranVert1 = vertices.get(rand.nextInt(vertices.size()));
-            Integer ranVert2 = vertices.get(rand.nextInt(vertices.size()));
-
-            edges.add(new Pair<>(ranVert1, ranVert2));
+            sources[i] = vertices[rand.nextInt(vertices.length)];
+            targets[i] = vertices[rand.nextInt(vertices.length)];
         }
 
-        return new Graph(vertices, edges);
+        return new Graph(vertices, sources, targets);
     }
 
     /**
@@ -57,26 +93,25 @@ public class GraphBenchmark {
     public static Graph createGraph(int verticesNumber, int edgeNumber, double mean, double variance, Random rand){
         if (rand == null)
             rand = new Random();
-        ArrayList<Integer> vertices = new ArrayList<>();
-        ArrayList<Pair<Integer, Integer>> edges = new ArrayList<>();
+        int[] vertices = new int[verticesNumber];
+        int[] sources = new int[edgeNumber];
+        int[] targets = new int[edgeNumber];
 
         for (int i = 0; i < verticesNumber; i++) {
-            vertices.add(i);
+            vertices[i] = i;
         }
 
         for (int i = 0; i < edgeNumber; i++) {
             int ranIndex1 = (int) (rand.nextGaussian() * variance + mean);
-            ranIndex1 = Math.max(0, Math.min(vertices.size()-1, ranIndex1));
-            Integer ranVert1 = vertices.get(ranIndex1);
+            ranIndex1 = Math.max(0, Math.min(vertices.length-1, ranIndex1));
+            sources[i] = vertices[ranIndex1];
 
             int ranIndex2 = (int) (rand.nextGaussian() * variance + mean);
-            ranIndex2 = Math.max(0, Math.min(vertices.size()-1, ranIndex2));
-            Integer ranVert2 = vertices.get(ranIndex2);
-
-            edges.add(new Pair<>(ranVert1, ranVert2));
+            ranIndex2 = Math.max(0, Math.min(vertices.length-1, ranIndex2));
+            targets[i] = vertices[ranIndex2];
         }
 
-        return new Graph(vertices, edges);
+        return new Graph(vertices, sources, targets);
     }
 
     /**
@@ -133,6 +168,93 @@ public class GraphBenchmark {
         return true;
     }
 
+    /**
+     * Encodes random graphs with an {@link InstrumentedGraphEncoding} into different outputs (StringBuilder,
+     * StringBuffer, Writer and CharBuffer) and checks that the recorded sequence lengths equal the count of
+     * characters written.
+     *
+     * @param code contains an instance of an {@link GraphEncoding} implementation
+     * @param rand Instance of {@link Random} which is used to create the graphs. Seed it to reproduce a failure.
+     *             May be null
+     * @return true if the metrics of every output match the written characters, else false
+     */
+    public static boolean testMetricsLengths(GraphEncoding code, Random rand){
+        if (rand == null)
+            rand = new Random();
+        int maxVerticesNumber = 50, maxGraphNumber = 10;
+
+        for (int output = 0; output < 4; output++) {
+            EncodingMetrics metrics = new EncodingMetrics();
+            GraphEncoding instrumented = metrics.wrap(code);
+            long written = 0, edges = 0;
+
+            for (int j = 0; j < maxGraphNumber; j++) {
+                Graph randomGraph = createGraph(1 + rand.nextInt(maxVerticesNumber),
+                        rand.nextInt(maxVerticesNumber * maxVerticesNumber), rand);
+                String sequence = randomGraph.toString(code, true);
+                int length;
+                try {
+                    if (output == 0) {
+                        StringBuilder out = new StringBuilder("prefix");
+                        instrumented.write(randomGraph, true, out);
+                        length = out.length() - "prefix".length();
+                    } else if (output == 1) {
+                        StringBuffer out = new StringBuffer("prefix");
+                        instrumented.write(randomGraph, true, out);
+                        length = out.length() - "prefix".length();
+                    } else if (output == 2) {
+                        StringWriter out = new StringWriter();
+                        instrumented.write(randomGraph, true, out);
+                        length = out.getBuffer().length();
+                    } else {
+                        // the length of a CharBuffer is its remaining capacity, which shrinks while writing
+                        CharBuffer out = CharBuffer.allocate(sequence.length() + 100);
+                        instrumented.write(randomGraph, true, out);
+                        length = out.position();
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+                if (length != sequence.length())
+                    return false;
+                written += length;
+                edges += randomGraph.getEdgeCount();
+            }
+
+            EncodingMetrics.OperationSnapshot snapshot = metrics.snapshot().getOperations().stream()
+                    .filter(operation -> "encode".equals(operation.getOperation())
+                            && Boolean.TRUE.equals(operation.getPreserveOrder()))
+                    .findFirst().orElse(null);
+            if (snapshot == null || snapshot.getNucleotideCount() != written || snapshot.getEdgeCount() != edges
+                    || snapshot.getLatency().getCount() != maxGraphNumber)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates "graphNumber" random uniformly distributed graphs and groups them into isomorphism classes.
+     *
+     * @param verticesNumber number of vertices that every graph should contain
+     * @param edgeNumber number of edges that every graph should contain
+     * @param graphNumber number of graphs to create
+     * @param rand Instance of {@link Random} which is used for random vertex selection. May be null
+     * @return an {@link IsomorphismClassIndex} containing all created graphs
+     */
+    public static IsomorphismClassIndex dedupeRandomGraphs(int verticesNumber, int edgeNumber, int graphNumber,
+                                                           Random rand){
+        if (rand == null)
+            rand = new Random();
+        IsomorphismClassIndex index = new IsomorphismClassIndex();
+
+        for (int i = 0; i < graphNumber; i++) {
+            index.add(createGraph(verticesNumber, edgeNumber, rand));
+        }
+
+        return index;
+    }
+
     /**
      * Creates for every number of 1 to "maxVerticesCount" vertices a random uniformly distributed graph.
      * Encodes with the implementations all graphs to DNA sequence with preserveOrder true and false.
@@ -146,53 +268,383 @@ public class GraphBenchmark {
      * @return file path of the CSV file
      */
     public static String sampleEncodings(GraphEncoding[] encodings, int maxVerticesCount, Random rand){
+        return sampleEncodings(encodings, maxVerticesCount, maxVerticesCount, rand, true, false);
+    }
+
+    /**
+     * Like {@link #sampleEncodings(GraphEncoding[], int, Random)}, but for "graphCount" graphs whose counts of
+     * vertices run repeatedly from 1 to "maxVerticesCount", optionally only with the lengths of the
+     * DNA sequences instead of the graphs and sequences, and optionally with the encode time in nanoseconds after
+     * every sequence or length.
+     * Without times the graphs are created and encoded in parallel on the common pool, a bounded window of pending
+     * rows keeps the memory small, the rows are written in the order of the graphs by the calling thread.
+     * With times every encoder is warmed up first and the rows are encoded one after another by the calling thread,
+     * so that other rows do not compete for the cores. Each time is still a single encode, for stable numbers use
+     * {@link #sweepScalability} or the JMH benchmarks.
+     * The graphs only depend on the seeds drawn from "rand", not on the count of threads.
+     *
+     * @param encodings list of instances of {@link GraphEncoding} implementations
+     * @param graphCount number of graphs, one per row
+     * @param maxVerticesCount number of the maximal count of vertices in a graph
+     * @param rand Instance of {@link Random} which is used for the seeds of the graphs. May be null
+     * @param recordSequences indicates whether the graphs and sequences (true) or the lengths (false) are written
+     * @param recordNanos indicates whether the encode times are written
+     * @return file path of the CSV file
+     * @throws IllegalArgumentException if "maxVerticesCount" is not positive or its graph would have more than
+     *                                  {@link Integer#MAX_VALUE} edges
+     */
+    public static String sampleEncodings(GraphEncoding[] encodings, int graphCount, int maxVerticesCount,
+                                         Random rand, boolean recordSequences, boolean recordNanos){
+        if (maxVerticesCount < 1 || sampleEdgeCount(maxVerticesCount) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Unsupported maximal count of vertices " + maxVerticesCount);
         if (rand == null)
             rand = new Random();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss");
         String folderPath = "benchmark";
         //noinspection ResultOfMethodCallIgnored
         new File(folderPath).mkdirs();
-        String filePath = folderPath + "/" + LocalDateTime.now().format(formatter) +"-DNASequenceLength.csv";
-        try (PrintWriter writer = new PrintWriter(filePath)) {
+        String filePath = folderPath + "/" + LocalDateTime.now().format(formatter)
+                + (recordSequences ? "-DNASequenceLength.csv" : "-DNASequenceLengthOnly.csv");
+        try (Writer writer = new BufferedWriter(new FileWriter(filePath), 1 << 16)) {
             writer.append("VerticesInGraph").append(";");
-            writer.append("EdgesInGraph").append(";");
-            writer.append("graphString").append(";");
-
-            for (int i = 0; i < encodings.length; i++) {
-                writer.append("preserveOrder").append(encodings[i].getClass().getSimpleName()).append(";");
-                writer.append("noOrder").append(encodings[i].getClass().getSimpleName());
-
-                if(i+1 < encodings.length){
-                    writer.append(";");
+            writer.append("EdgesInGraph");
+            if (recordSequences)
+                writer.append(";graphString");
+
+            for (GraphEncoding encoding : encodings) {
+                String name = encoding.getClass().getSimpleName();
+                for (String order : new String[]{"preserveOrder", "noOrder"}) {
+                    writer.append(';').append(order).append(recordSequences ? "" : "Length").append(name);
+                    if (recordNanos)
+                        writer.append(';').append(order).append("Nanos").append(name);
                 }
             }
             writer.append("\n");
 
-            for (int vertCount = 1; vertCount <= maxVerticesCount; vertCount++) {
-                int edgeCount = (int) Math.ceil((vertCount * vertCount) / 4.d);
+            if (recordNanos)
+                warmUp(encodings);
+            // rows which are being computed, in the order of the graphs; timed rows are computed one at a time
+            int window = recordNanos ? 1 : 4 * ForkJoinPool.getCommonPoolParallelism();
+            ArrayDeque<CompletableFuture<String>> pending = new ArrayDeque<>();
+            int nextGraph = 0;
+            while (nextGraph < graphCount || !pending.isEmpty()) {
+                while (nextGraph < graphCount && pending.size() < window) {
+                    int vertCount = 1 + nextGraph++ % maxVerticesCount;
+                    long seed = rand.nextLong();
+                    if (recordNanos)
+                        pending.add(CompletableFuture.completedFuture(
+                                sampleRow(encodings, vertCount, seed, recordSequences, true)));
+                    else
+                        pending.add(CompletableFuture.supplyAsync(
+                                () -> sampleRow(encodings, vertCount, seed, recordSequences, false)));
+                }
+                writer.append(pending.remove().join());
+            }
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return "";
+        }
+
+        return filePath;
+    }
+
+    /**
+     * Creates and encodes the graph of one CSV row of
+     * {@link #sampleEncodings(GraphEncoding[], int, int, Random, boolean, boolean)}.
+     *
+     * @param encodings list of instances of {@link GraphEncoding} implementations
+     * @param vertCount number of vertices of the graph
+     * @param seed seed of the random vertex selection
+     * @param recordSequences indicates whether the graph and sequences or the lengths are written
+     * @param recordNanos indicates whether the encode times are written
+     * @return the CSV row including the line break
+     */
+    private static String sampleRow(GraphEncoding[] encodings, int vertCount, long seed, boolean recordSequences,
+                                    boolean recordNanos){
+        int edgeCount = (int) sampleEdgeCount(vertCount);
+        Graph randomGraph = createGraph(vertCount, edgeCount, vertCount / 2d, vertCount * 0.25f, new Random(seed));
+
+        StringBuilder row = new StringBuilder();
+        row.append(vertCount).append(';');
+        row.append(edgeCount);
+        if (recordSequences)
+            row.append(';').append(randomGraph);
+        for (GraphEncoding encoding : encodings) {
+            for (boolean preserveOrder : new boolean[]{true, false}) {
+                long start = System.nanoTime();
+                String sequence = randomGraph.toString(encoding, preserveOrder);
+                long nanos = System.nanoTime() - start;
+                if (recordSequences)
+                    row.append(';').append(sequence);
+                else
+                    row.append(';').append(sequence.length());
+                if (recordNanos)
+                    row.append(';').append(nanos);
+            }
+        }
+        return row.append('\n').toString();
+    }
 
-                Graph randomGraph = createGraph(vertCount, edgeCount, vertCount / 2d, vertCount * 0.25f, rand);
+    /**
+     * @param vertCount number of vertices of a graph of {@link #sampleRow}
+     * @return number of edges of the graph, a quarter of all possible edges
+     */
+    private static long sampleEdgeCount(int vertCount){
+        return ((long) vertCount * vertCount + 3) / 4;
+    }
 
-                writer.append(Integer.toString(vertCount)).append(';');
-                writer.append(Integer.toString(edgeCount)).append(';');
-                writer.append(randomGraph.toString()).append(';');
+    /**
+     * Encodes a fixed graph with every implementation and order option until the JIT compiler had time to warm up.
+     *
+     * @param encodings list of instances of {@link GraphEncoding} implementations
+     */
+    private static void warmUp(GraphEncoding[] encodings){
+        Graph graph = createGraph(FIT_MIN_VERTICES, 4 * FIT_MIN_VERTICES, new Random(0));
+        for (GraphEncoding encoding : encodings) {
+            for (boolean preserveOrder : new boolean[]{true, false}) {
+                long start = System.nanoTime();
+                do {
+                    graph.toString(encoding, preserveOrder);
+                } while (System.nanoTime() - start < WARMUP_NANOS);
+            }
+        }
+    }
 
-                for (int j = 0; j < encodings.length; j++) {
-                    writer.append(randomGraph.toString(encodings[j], true)).append(';');
-                    writer.append(randomGraph.toString(encodings[j], false));
+    /**
+     * Measures encode and decode time of the implementations on random uniformly distributed graphs which grow
+     * geometrically from 10 to "maxVerticesCount" vertices with a fixed count of edges per vertex.
+     * A series stops early if the next graph would take more than 5 seconds or produce a sequence longer than 2^27.
+     * Fits the scaling exponent k of time ~ vertices^k and its standard error per implementation, density,
+     * order option and operation with least squares on the logarithms of the graphs with at least 100 vertices.
+     * Series with less than 4 of these graphs get the exponent NaN and are never flagged.
+     * Creates two CSV files: the single measurements and the report with one line per operation, which flags
+     * exponents above "maxExponent" and exponents which grew by more than 0.2 plus two combined standard errors
+     * compared to the baseline. A previous report can be used as baseline.
+     *
+     * @param encodings list of instances of {@link GraphEncoding} implementations
+     * @param maxVerticesCount number of the maximal count of vertices in a graph, e.g. 1000000
+     * @param edgesPerVertex densities which will be measured
+     * @param maxExponent highest exponent which is not flagged
+     * @param baselinePath path of a previous report or null
+     * @param rand Instance of {@link Random} which is used for random vertex selection. May be null
+     * @return file path of the report CSV file
+     */
+    public static String sweepScalability(GraphEncoding[] encodings, int maxVerticesCount, int[] edgesPerVertex,
+                                          double maxExponent, String baselinePath, Random rand){
+        if (rand == null)
+            rand = new Random();
+        Map<String, double[]> baseline = new HashMap<>();
+        if (baselinePath != null) {
+            try {
+                baseline = readSweepReport(baselinePath);
+            } catch (IOException e) {
+                System.out.println(e.getMessage());
+                return "";
+            }
+        }
 
-                    if (j + 1 < encodings.length) {
-                        writer.append(';');
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss");
+        String folderPath = "benchmark";
+        //noinspection ResultOfMethodCallIgnored
+        new File(folderPath).mkdirs();
+        String filePrefix = folderPath + "/" + LocalDateTime.now().format(formatter);
+        String reportPath = filePrefix + "-Scalability.csv";
+        try (PrintWriter points = new PrintWriter(filePrefix + "-ScalabilityPoints.csv");
+             PrintWriter report = new PrintWriter(reportPath)) {
+            points.append("encoding;edgesPerVertex;preserveOrder;VerticesInGraph;EdgesInGraph;sequenceLength;"
+                    + "encodeNanos;decodeNanos\n");
+            report.append("encoding;edgesPerVertex;preserveOrder;operation;points;exponent;exponentError;"
+                    + "baselineExponent;baselineExponentError;exceedsMaxExponent;regressed\n");
+
+            for (GraphEncoding encoding : encodings) {
+                for (int density : edgesPerVertex) {
+                    for (boolean preserveOrder : new boolean[]{true, false}) {
+                        String series = encoding.getClass().getSimpleName() + ";" + density + ";" + preserveOrder;
+                        double[][] times = sweepSeries(encoding, maxVerticesCount, density, preserveOrder, series,
+                                points, rand);
+                        String[] operations = {"encode", "decode"};
+                        for (int i = 0; i < operations.length; i++) {
+                            String key = series + ";" + operations[i];
+                            double[] fit = fitExponent(times[0], times[i + 1]);
+                            double[] baselineFit = baseline.get(key);
+                            report.append(key).append(';');
+                            report.append(Integer.toString(times[0].length)).append(';');
+                            report.append(Double.toString(fit[0])).append(';');
+                            report.append(Double.toString(fit[1])).append(';');
+                            report.append(baselineFit == null ? "" : Double.toString(baselineFit[0])).append(';');
+                            report.append(baselineFit == null ? "" : Double.toString(baselineFit[1])).append(';');
+                            report.append(Boolean.toString(fit[0] > maxExponent)).append(';');
+                            report.append(Boolean.toString(baselineFit != null && fit[0] - baselineFit[0]
+                                    > REGRESSION_TOLERANCE + REGRESSION_STANDARD_ERRORS
+                                    * Math.sqrt(fit[1] * fit[1] + baselineFit[1] * baselineFit[1])));
+                            report.append('\n');
+                        }
+                        points.flush();
+                        report.flush();
                     }
                 }
-
-                writer.append('\n');
             }
         } catch (FileNotFoundException e) {
             System.out.println(e.getMessage());
             return "";
         }
 
-        return filePath;
+        return reportPath;
+    }
+
+    /**
+     * Measures one implementation on growing graphs and writes every measurement to the points file.
+     *
+     * @param encoding an instance of an {@link GraphEncoding} implementation
+     * @param maxVerticesCount number of the maximal count of vertices in a graph
+     * @param edgesPerVertex count of edges per vertex
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param series first columns of the points file
+     * @param points writer of the points file
+     * @param rand Instance of {@link Random} which is used for random vertex selection
+     * @return vertex counts, encode nanoseconds and decode nanoseconds of all measured graphs
+     */
+    private static double[][] sweepSeries(GraphEncoding encoding, int maxVerticesCount, int edgesPerVertex,
+                                          boolean preserveOrder, String series, PrintWriter points, Random rand){
+        int maxSteps = 1 + (int) Math.floor(Math.log((double) maxVerticesCount / SWEEP_MIN_VERTICES)
+                / Math.log(SWEEP_GROWTH) + 1e-9);
+        double[] vertices = new double[Math.max(0, maxSteps)];
+        double[] encodeNanos = new double[vertices.length];
+        double[] decodeNanos = new double[vertices.length];
+        int count = 0;
+        double previousNanos = 0, previousLength = 0;
+
+        for (int step = 0; step < maxSteps; step++) {
+            int vertCount = (int) Math.round(SWEEP_MIN_VERTICES * Math.pow(SWEEP_GROWTH, step));
+            long edgeCount = (long) vertCount * edgesPerVertex;
+            if (edgeCount > Integer.MAX_VALUE)
+                break;
+            Graph graph = createGraph(vertCount, (int) edgeCount, rand);
+            String sequence = graph.toString(encoding, preserveOrder);
+
+            vertices[count] = vertCount;
+            encodeNanos[count] = measureNanos(() -> graph.toString(encoding, preserveOrder).length());
+            decodeNanos[count] = measureNanos(() -> new Graph(sequence, encoding).getEdgeCount());
+
+            points.append(series).append(';');
+            points.append(Integer.toString(vertCount)).append(';');
+            points.append(Long.toString(edgeCount)).append(';');
+            points.append(Integer.toString(sequence.length())).append(';');
+            points.append(Long.toString(Math.round(encodeNanos[count]))).append(';');
+            points.append(Long.toString(Math.round(decodeNanos[count]))).append('\n');
+
+            // extrapolate the next step with the growth of the last step
+            double nanos = encodeNanos[count] + decodeNanos[count];
+            double nanosGrowth = previousNanos > 0 ? nanos / previousNanos : SWEEP_GROWTH;
+            double lengthGrowth = previousLength > 0 ? sequence.length() / previousLength : SWEEP_GROWTH;
+            previousNanos = nanos;
+            previousLength = sequence.length();
+            count++;
+            if (nanos * nanosGrowth > MAX_OPERATION_NANOS || sequence.length() * lengthGrowth > MAX_SEQUENCE_LENGTH)
+                break;
+        }
+
+        return new double[][]{
+                Arrays.copyOf(vertices, count),
+                Arrays.copyOf(encodeNanos, count),
+                Arrays.copyOf(decodeNanos, count)};
+    }
+
+    /**
+     * Runs an operation until the JIT compiler had time to warm up, then takes samples of at least 10 milliseconds.
+     *
+     * @param operation operation which will be measured, returns any value which depends on its result
+     * @return median time of one operation in nanoseconds
+     */
+    private static double measureNanos(IntSupplier operation){
+        long result = 0;
+        long start = System.nanoTime();
+        do {
+            result += operation.getAsInt();
+        } while (System.nanoTime() - start < WARMUP_NANOS);
+
+        double[] samples = new double[SAMPLE_COUNT];
+        int sampleCount = 0;
+        long measureStart = System.nanoTime();
+        while (sampleCount < SAMPLE_COUNT
+                && (sampleCount == 0 || System.nanoTime() - measureStart < MAX_MEASURE_NANOS)) {
+            int runs = 0;
+            long sampleStart = System.nanoTime();
+            long elapsed;
+            do {
+                result += operation.getAsInt();
+                runs++;
+            } while ((elapsed = System.nanoTime() - sampleStart) < SAMPLE_NANOS);
+            samples[sampleCount++] = (double) elapsed / runs;
+        }
+        sink = result;
+
+        Arrays.sort(samples, 0, sampleCount);
+        return samples[sampleCount / 2];
+    }
+
+    /**
+     * Fits the exponent k of time ~ vertices^k with least squares on the logarithms.
+     * Graphs with less than 100 vertices are left out, their times are dominated by constant costs.
+     *
+     * @param vertices vertex counts
+     * @param nanos times of the graphs
+     * @return the exponent and its standard error, both NaN if less than 4 large graphs were measured
+     */
+    static double[] fitExponent(double[] vertices, double[] nanos){
+        int n = 0;
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0, sumYY = 0;
+        for (int i = 0; i < vertices.length; i++) {
+            if (vertices[i] < FIT_MIN_VERTICES)
+                continue;
+            double x = Math.log(vertices[i]), y = Math.log(nanos[i]);
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            sumYY += y * y;
+        }
+        if (n < FIT_MIN_POINTS)
+            return new double[]{Double.NaN, Double.NaN};
+
+        double sxx = sumXX - sumX * sumX / n;
+        double sxy = sumXY - sumX * sumY / n;
+        double syy = sumYY - sumY * sumY / n;
+        double exponent = sxy / sxx;
+        // residual sum of squares, rounding may make it slightly negative for a perfect fit
+        double residuals = Math.max(0, syy - exponent * sxy);
+        return new double[]{exponent, Math.sqrt(residuals / (n - 2) / sxx)};
+    }
+
+    /**
+     * Reads the exponents of a report written by {@link #sweepScalability(GraphEncoding[], int, int[], double,
+     * String, Random)}. Reports without standard errors are read with the error 0.
+     *
+     * @param path path of the report
+     * @return exponent and standard error of every operation, the key are the first 4 columns joined with ';'
+     * @throws IOException if the file cannot be read
+     */
+    private static Map<String, double[]> readSweepReport(String path) throws IOException {
+        Map<String, double[]> exponents = new HashMap<>();
+        List<String> lines = Files.readAllLines(Paths.get(path));
+        if (lines.isEmpty())
+            return exponents;
+        List<String> header = Arrays.asList(lines.get(0).split(";"));
+        int exponentColumn = header.indexOf("exponent");
+        int errorColumn = header.indexOf("exponentError");
+        if (exponentColumn < 0)
+            return exponents;
+        for (int i = 1; i < lines.size(); i++) {
+            String[] columns = lines.get(i).split(";");
+            if (columns.length <= Math.max(exponentColumn, errorColumn))
+                continue;
+            double exponent = Double.parseDouble(columns[exponentColumn]);
+            double error = errorColumn < 0 ? 0 : Double.parseDouble(columns[errorColumn]);
+            if (!Double.isNaN(exponent))
+                exponents.put(columns[0] + ";" + columns[1] + ";" + columns[2] + ";" + columns[3],
+                        new double[]{exponent, error});
+        }
+        return exponents;
     }
 }
@@ -1,5 +1,13 @@
 package de.unijena.DNAGraphUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Interface for classes that are capable of encoding {@link Graph} objects to DNA sequences
  * and decodes DNA sequences to {@link Graph} objects.
@@ -12,7 +20,74 @@ public interface GraphEncoding {
      * @param preserveOrder indicates whether the order needs to be preserved
      * @return DNA sequence of the graph
      */
-    String toString(Graph graph, boolean preserveOrder);
+    default String toString(Graph graph, boolean preserveOrder) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            write(graph, preserveOrder, sb);
+        } catch (IOException e) {
+            // a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Encodes a graph to a DNA sequence and appends it piece by piece to the output, so the sequence never has to
+     * be held in memory as a whole. The implementations collect the bases and pass them to the output in blocks
+     * of a few thousand characters. The output is neither flushed nor closed.
+     *
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param out {@link Appendable} (e.g. a {@link java.io.Writer}) the DNA sequence will be appended to
+     * @throws IOException if the output throws
+     */
+    void write(Graph graph, boolean preserveOrder, Appendable out) throws IOException;
+
+    /**
+     * Encodes a graph to a DNA sequence and writes it as ASCII to a channel through a buffer of bounded size.
+     * The channel is not closed.
+     *
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param channel channel the DNA sequence will be written to
+     * @throws IOException if the channel throws
+     */
+    default void write(Graph graph, boolean preserveOrder, WritableByteChannel channel) throws IOException {
+        ChannelAppendable out = new ChannelAppendable(channel);
+        write(graph, preserveOrder, out);
+        out.flush();
+    }
+
+    /**
+     * Encodes a graph to a 2 bit packed DNA sequence. Only works for encodings which produce the bases A, C, G and T.
+     *
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return DNA sequence of the graph
+     */
+    default DnaSequence toDnaSequence(Graph graph, boolean preserveOrder) {
+        DnaSequence sequence = new DnaSequence();
+        try {
+            write(graph, preserveOrder, sequence);
+        } catch (IOException e) {
+            // a DnaSequence never throws
+            throw new UncheckedIOException(e);
+        }
+        return sequence;
+    }
+
+    /**
+     * Encodes the canonical form of a graph (see {@link Graph#getCanonicalForm()}).
+     * Isomorphic graphs result in identical DNA sequences, so stored graphs can be compared
+     * by comparing their sequences.
+     *
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order of the canonical form needs to be preserved
+     * @return DNA sequence of the canonical form of the graph
+     */
+    default String toCanonicalString(Graph graph, boolean preserveOrder) {
+        return toString(graph.getCanonicalForm(), preserveOrder);
+    }
 
     /**
      * Decodes a DNA sequence to a {@link Graph} object.
@@ -20,5 +95,45 @@ public interface GraphEncoding {
      * @param graph a {@link Graph} object
      * @param repr the DNA sequence of a graph
      */
-    void load(Graph graph, String repr);
+    default void load(Graph graph, String repr) {
+        load(graph, (CharSequence) repr);
+    }
+
+    /**
+     * Decodes a DNA sequence, e.g. a {@link DnaSequence}, to a {@link Graph} object.
+     *
+     * @param graph a {@link Graph} object
+     * @param repr the DNA sequence of a graph
+     */
+    default void load(Graph graph, CharSequence repr) {
+        try {
+            load(graph, new CharSequenceReader(repr));
+        } catch (IOException e) {
+            // reading from a CharSequence never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes a DNA sequence to a {@link Graph} object while reading it. Only a buffer of bounded size is held
+     * in memory besides the graph, so the sequence may be larger than the available memory.
+     * The reader is not closed.
+     *
+     * @param graph a {@link Graph} object
+     * @param in reader the DNA sequence of a graph will be read from
+     * @throws IOException if the reader throws
+     */
+    void load(Graph graph, Reader in) throws IOException;
+
+    /**
+     * Decodes an ASCII DNA sequence read from a channel to a {@link Graph} object.
+     * The channel is not closed.
+     *
+     * @param graph a {@link Graph} object
+     * @param channel channel the DNA sequence of a graph will be read from
+     * @throws IOException if the channel throws
+     */
+    default void load(Graph graph, ReadableByteChannel channel) throws IOException {
+        load(graph, Channels.newReader(channel, StandardCharsets.US_ASCII.newDecoder(), -1));
+    }
 }
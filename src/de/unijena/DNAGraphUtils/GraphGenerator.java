@@ -0,0 +1,191 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates large random graphs directly into primitive edge arrays, e.g. power-law workloads for benchmarks.
+ * The edges are generated in parallel chunks of fixed size. Every chunk gets its own {@link SplittableRandom},
+ * split from the seed in the order of the chunks, so a seed always yields the same graph, independent of the
+ * count of threads. The vertices of every graph are 0 to n - 1.
+ */
+public class GraphGenerator {
+    // edges per chunk, the chunks do not depend on the count of threads
+    private static final int CHUNK_SIZE = 1 << 16;
+    // mixes the slot index into the seed of the preferential attachment
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private GraphGenerator() {
+    }
+
+    /**
+     * Creates an Erdos-Renyi graph G(n, p): each of the n^2 ordered pairs of vertices (including loops) is an edge
+     * with probability p. Instead of drawing a number per pair, the gap to the next edge is drawn from the geometric
+     * distribution, so the time is linear in the count of edges.
+     *
+     * @param verticesNumber number of vertices n
+     * @param probability probability p of every edge, from 0 to 1
+     * @param seed seed of the random numbers
+     * @return a new {@link Graph} object
+     */
+    public static Graph createErdosRenyiGraph(int verticesNumber, double probability, long seed) {
+        if (probability < 0 || probability > 1)
+            throw new IllegalArgumentException("Probability must be between 0 and 1");
+        long pairCount = (long) verticesNumber * verticesNumber;
+        if (pairCount * probability > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Expected count of edges does not fit into an array");
+        if (probability == 0 || pairCount == 0)
+            return new Graph(range(verticesNumber), new int[0], new int[0]);
+
+        // the gaps are memoryless, so every chunk of pairs can start skipping at its first pair
+        long pairsPerChunk = Math.max(CHUNK_SIZE, (long) (CHUNK_SIZE / probability));
+        int chunkCount = (int) ((pairCount + pairsPerChunk - 1) / pairsPerChunk);
+        SplittableRandom[] randoms = splitRandoms(seed, chunkCount);
+        double logComplement = Math.log1p(-probability);
+        int[][] chunkSources = new int[chunkCount][];
+        int[][] chunkTargets = new int[chunkCount][];
+        int[] chunkSizes = new int[chunkCount];
+
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            SplittableRandom rand = randoms[chunk];
+            long end = Math.min(pairCount, (chunk + 1) * pairsPerChunk);
+            int[] sources = new int[16];
+            int[] targets = new int[16];
+            int size = 0;
+            long pair = chunk * pairsPerChunk - 1;
+            while (true) {
+                // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+                pair += probability == 1 ? 1 : 1 + (long) (Math.log(1 - rand.nextDouble()) / logComplement);
+                if (pair >= end || pair < 0)
+                    break;
+                if (size == sources.length) {
+                    sources = Arrays.copyOf(sources, 2 * size);
+                    targets = Arrays.copyOf(targets, 2 * size);
+                }
+                sources[size] = (int) (pair / verticesNumber);
+                targets[size] = (int) (pair % verticesNumber);
+                size++;
+            }
+            chunkSources[chunk] = sources;
+            chunkTargets[chunk] = targets;
+            chunkSizes[chunk] = size;
+        });
+
+        int[] offsets = new int[chunkCount + 1];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            offsets[chunk + 1] = offsets[chunk] + chunkSizes[chunk];
+        }
+        int[] sources = new int[offsets[chunkCount]];
+        int[] targets = new int[offsets[chunkCount]];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            System.arraycopy(chunkSources[chunk], 0, sources, offsets[chunk], chunkSizes[chunk]);
+            System.arraycopy(chunkTargets[chunk], 0, targets, offsets[chunk], chunkSizes[chunk]);
+        });
+        return new Graph(range(verticesNumber), sources, targets);
+    }
+
+    /**
+     * Creates a Barabasi-Albert graph by preferential attachment: vertex v adds "edgesPerVertex" edges from itself
+     * to earlier vertices, which are chosen proportional to their degree (loops and multiple edges can occur).
+     * The endpoints of all edges form one array, the target of edge i is the endpoint at a uniformly random earlier
+     * position. If that position is the target of another edge, its choice is followed instead. The random number
+     * of every position only depends on the seed and the position, so all edges can be resolved in parallel.
+     *
+     * @param verticesNumber number of vertices
+     * @param edgesPerVertex number of edges every vertex adds
+     * @param seed seed of the random numbers
+     * @return a new {@link Graph} object
+     */
+    public static Graph createBarabasiAlbertGraph(int verticesNumber, int edgesPerVertex, long seed) {
+        long edgeCount = (long) verticesNumber * edgesPerVertex;
+        if (edgeCount > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Count of edges does not fit into an array");
+        int[] sources = new int[(int) edgeCount];
+        int[] targets = new int[(int) edgeCount];
+
+        long base = new SplittableRandom(seed).nextLong();
+        int chunkCount = (int) ((edgeCount + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            int end = (int) Math.min(edgeCount, (long) (chunk + 1) * CHUNK_SIZE);
+            for (int edge = chunk * CHUNK_SIZE; edge < end; edge++) {
+                sources[edge] = edge / edgesPerVertex;
+                // endpoint 2i is the source of edge i, endpoint 2i + 1 its target
+                long position = 2L * edge + 1;
+                while (position % 2 == 1) {
+                    position = new SplittableRandom(base + position * GOLDEN_GAMMA).nextLong(position);
+                }
+                targets[edge] = (int) (position / 2 / edgesPerVertex);
+            }
+        });
+        return new Graph(range(verticesNumber), sources, targets);
+    }
+
+    /**
+     * Creates an R-MAT graph with 2^scale vertices: every edge descends "scale" times into one of the four quadrants
+     * of the adjacency matrix, chosen with the probabilities a, b, c and 1 - a - b - c.
+     * The common parameters a = 0.57, b = 0.19, c = 0.19 yield power-law degrees.
+     *
+     * @param scale binary logarithm of the number of vertices, at most 30
+     * @param edgeNumber number of edges
+     * @param a probability of the upper left quadrant
+     * @param b probability of the upper right quadrant
+     * @param c probability of the lower left quadrant
+     * @param seed seed of the random numbers
+     * @return a new {@link Graph} object
+     */
+    public static Graph createRMatGraph(int scale, int edgeNumber, double a, double b, double c, long seed) {
+        if (scale < 0 || scale > 30)
+            throw new IllegalArgumentException("Scale must be between 0 and 30");
+        if (a < 0 || b < 0 || c < 0 || a + b + c > 1)
+            throw new IllegalArgumentException("Invalid quadrant probabilities");
+        int[] sources = new int[edgeNumber];
+        int[] targets = new int[edgeNumber];
+
+        int chunkCount = (edgeNumber + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        SplittableRandom[] randoms = splitRandoms(seed, chunkCount);
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            SplittableRandom rand = randoms[chunk];
+            int end = (int) Math.min(edgeNumber, (long) (chunk + 1) * CHUNK_SIZE);
+            for (int edge = chunk * CHUNK_SIZE; edge < end; edge++) {
+                int source = 0, target = 0;
+                for (int bit = scale - 1; bit >= 0; bit--) {
+                    double r = rand.nextDouble();
+                    if (r >= a + b)
+                        source |= 1 << bit;
+                    if ((r >= a && r < a + b) || r >= a + b + c)
+                        target |= 1 << bit;
+                }
+                sources[edge] = source;
+                targets[edge] = target;
+            }
+        });
+        return new Graph(range(1 << scale), sources, targets);
+    }
+
+    /**
+     * @param seed seed of the random numbers
+     * @param count count of chunks
+     * @return one random number generator per chunk, split in the order of the chunks
+     */
+    private static SplittableRandom[] splitRandoms(long seed, int count) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            randoms[i] = root.split();
+        }
+        return randoms;
+    }
+
+    /**
+     * @param count count of vertices
+     * @return the vertices 0 to count - 1
+     */
+    private static int[] range(int count) {
+        int[] vertices = new int[count];
+        for (int i = 0; i < count; i++) {
+            vertices[i] = i;
+        }
+        return vertices;
+    }
+}
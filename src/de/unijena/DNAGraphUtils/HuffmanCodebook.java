@@ -0,0 +1,251 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Canonical 4-ary Huffman codebook built with plain int arrays.
+ * The symbols are sorted by frequency once, afterwards the code lengths are computed with the two-queue method:
+ * the leaves are taken from the sorted array, merged nodes are appended to a second array whose weights are
+ * non-decreasing, so the lightest nodes are always at the front of one of the two queues.
+ * The codes are assigned canonically (ordered by code length, then by symbol) and stored as packed numbers.
+ */
+class HuffmanCodebook {
+    /**
+     * Longest code length whose codes fit into a long.
+     */
+    static final int MAX_CODE_LENGTH = 31;
+
+    private final int[] codeLengths;
+    private final long[] codes;
+    private final int[] lengthCounts;
+
+    /**
+     * Builds the codebook with codes of at most {@link #MAX_CODE_LENGTH} bases.
+     *
+     * @param frequencies frequency of every symbol, symbols are the indices
+     */
+    HuffmanCodebook(int[] frequencies) {
+        this(frequencies, MAX_CODE_LENGTH);
+    }
+
+    /**
+     * Builds the codebook with codes of at most the given length. If the optimal codes are longer, the lengths are
+     * limited with {@link #limitLengths(int[], int)}.
+     *
+     * @param frequencies frequency of every symbol, symbols are the indices
+     * @param maxCodeLength maximal code length, from 1 to {@link #MAX_CODE_LENGTH}
+     */
+    HuffmanCodebook(int[] frequencies, int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("Maximal code length must be between 1 and " + MAX_CODE_LENGTH);
+        if (maxCodeLength < 16 && frequencies.length > 1 << (2 * maxCodeLength))
+            throw new IllegalArgumentException(frequencies.length + " symbols do not fit into codes of length "
+                    + maxCodeLength);
+        int symbolCount = frequencies.length;
+        codeLengths = new int[symbolCount];
+        codes = new long[symbolCount];
+        if (symbolCount == 0) {
+            lengthCounts = new int[1];
+            return;
+        }
+
+        int[] sortedSymbols = sortByFrequency(frequencies);
+        int[] histogram = computeLengthHistogram(frequencies, sortedSymbols);
+        lengthCounts = limitLengths(histogram, maxCodeLength);
+
+        // the most frequent symbols get the shortest codes
+        int next = symbolCount - 1;
+        for (int length = 1; length < lengthCounts.length; length++) {
+            for (int i = 0; i < lengthCounts[length]; i++) {
+                codeLengths[sortedSymbols[next--]] = length;
+            }
+        }
+
+        assignCanonicalCodes();
+    }
+
+    /**
+     * @param frequencies frequency of every symbol
+     * @return symbols sorted ascending by frequency, symbols with equal frequency are sorted ascending
+     */
+    private static int[] sortByFrequency(int[] frequencies) {
+        long[] packed = new long[frequencies.length];
+        for (int symbol = 0; symbol < frequencies.length; symbol++) {
+            packed[symbol] = ((long) frequencies[symbol] << 32) | symbol;
+        }
+        Arrays.sort(packed);
+        int[] sortedSymbols = new int[frequencies.length];
+        for (int i = 0; i < packed.length; i++) {
+            sortedSymbols[i] = (int) packed[i];
+        }
+        return sortedSymbols;
+    }
+
+    /**
+     * Builds the Huffman tree with the two-queue method and counts the leaves per depth.
+     * The first merge combines only as many nodes as needed, so that all further merges combine 4 nodes.
+     *
+     * @param frequencies frequency of every symbol
+     * @param sortedSymbols symbols sorted ascending by frequency
+     * @return count of codes per code length, the index is the length
+     */
+    private static int[] computeLengthHistogram(int[] frequencies, int[] sortedSymbols) {
+        int symbolCount = sortedSymbols.length;
+        // nodes 0 to symbolCount - 1 are the leaves in sorted order, the merged nodes follow
+        long[] mergedWeights = new long[symbolCount];
+        int[] parents = new int[2 * symbolCount];
+        int nextLeaf = 0, nextMerged = 0, mergedCount = 0;
+
+        int mergeSize = symbolCount == 1 ? 1 : 2 + (symbolCount - 2) % 3;
+        while (true) {
+            long weight = 0;
+            for (int i = 0; i < mergeSize; i++) {
+                int node;
+                if (nextLeaf < symbolCount && (nextMerged == mergedCount
+                        || frequencies[sortedSymbols[nextLeaf]] <= mergedWeights[nextMerged])) {
+                    weight += frequencies[sortedSymbols[nextLeaf]];
+                    node = nextLeaf++;
+                } else {
+                    weight += mergedWeights[nextMerged];
+                    node = symbolCount + nextMerged++;
+                }
+                parents[node] = symbolCount + mergedCount;
+            }
+            mergedWeights[mergedCount++] = weight;
+            if (symbolCount - nextLeaf + mergedCount - nextMerged == 1)
+                break;
+            mergeSize = 4;
+        }
+
+        // parents are merged after their children, so the depths can be computed from the root downwards
+        int[] mergedDepths = new int[mergedCount];
+        for (int i = mergedCount - 2; i >= 0; i--) {
+            mergedDepths[i] = mergedDepths[parents[symbolCount + i] - symbolCount] + 1;
+        }
+        int maxLength = 0;
+        int[] leafDepths = new int[symbolCount];
+        for (int leaf = 0; leaf < symbolCount; leaf++) {
+            leafDepths[leaf] = mergedDepths[parents[leaf] - symbolCount] + 1;
+            maxLength = Math.max(maxLength, leafDepths[leaf]);
+        }
+        int[] histogram = new int[maxLength + 1];
+        for (int depth : leafDepths) {
+            histogram[depth]++;
+        }
+        return histogram;
+    }
+
+    /**
+     * Shortens all codes longer than the maximal length and restores the Kraft inequality by lengthening
+     * the longest codes below the maximum, which keeps the increase of the total length small.
+     *
+     * @param histogram count of codes per code length
+     * @param maxLength maximal code length
+     * @return count of codes per code length with no code longer than the maximal length
+     */
+    static int[] limitLengths(int[] histogram, int maxLength) {
+        if (histogram.length - 1 <= maxLength)
+            return histogram;
+
+        int[] limited = Arrays.copyOf(histogram, maxLength + 1);
+        for (int length = maxLength + 1; length < histogram.length; length++) {
+            limited[maxLength] += histogram[length];
+        }
+
+        // Kraft sum in units of a code with the maximal length, a prefix code allows at most 4^maxLength
+        long kraftSum = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            kraftSum += (long) limited[length] << (2 * (maxLength - length));
+        }
+        long capacity = 1L << (2 * maxLength);
+        while (kraftSum > capacity) {
+            int length = maxLength - 1;
+            while (limited[length] == 0) {
+                length--;
+            }
+            limited[length]--;
+            limited[length + 1]++;
+            kraftSum -= 3L << (2 * (maxLength - length - 1));
+        }
+        return limited;
+    }
+
+    /**
+     * Assigns the codes in the order of their length and their symbol, the first code of the next length
+     * is 4 times the successor of the last code.
+     */
+    private void assignCanonicalCodes() {
+        int[] offsets = new int[lengthCounts.length + 1];
+        for (int length = 1; length < lengthCounts.length; length++) {
+            offsets[length + 1] = offsets[length] + lengthCounts[length];
+        }
+        int[] symbols = new int[codeLengths.length];
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            symbols[offsets[codeLengths[symbol]]++] = symbol;
+        }
+
+        long code = 0;
+        int index = 0;
+        for (int length = 1; length < lengthCounts.length; length++) {
+            for (int i = 0; i < lengthCounts[length]; i++) {
+                codes[symbols[index++]] = code++;
+            }
+            code *= 4;
+        }
+    }
+
+    /**
+     * @param symbol a symbol
+     * @return count of bases of the code of the symbol
+     */
+    int getCodeLength(int symbol) {
+        return codeLengths[symbol];
+    }
+
+    /**
+     * @param symbol a symbol
+     * @return code of the symbol, the bases are packed with 2 bits each, the first base is the most significant
+     */
+    long getCode(int symbol) {
+        return codes[symbol];
+    }
+
+    /**
+     * @return the longest code length
+     */
+    int getMaxCodeLength() {
+        return lengthCounts.length - 1;
+    }
+
+    /**
+     * @param length code length
+     * @return count of codes with the given length
+     */
+    int getCount(int length) {
+        return length < lengthCounts.length ? lengthCounts[length] : 0;
+    }
+
+    /**
+     * Appends the code of a symbol as DNA bases.
+     *
+     * @param symbol a symbol
+     * @param out buffer the code will be appended to
+     * @throws IOException if the output throws
+     */
+    void appendCode(int symbol, DNABuffer out) throws IOException {
+        out.appendCode(codes[symbol], codeLengths[symbol]);
+    }
+
+    /**
+     * Writes the code of a symbol as DNA bases into a buffer.
+     *
+     * @param symbol a symbol
+     * @param buffer buffer the code will be written to
+     * @param offset position of the first base in the buffer
+     * @return position behind the last written base
+     */
+    int writeCode(int symbol, char[] buffer, int offset) {
+        return DNAHelper.writeCode(codes[symbol], codeLengths[symbol], buffer, offset);
+    }
+}
@@ -0,0 +1,125 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodes a canonical 4-ary Huffman code base by base without building strings.
+ * In a canonical code the codes of one length are consecutive numbers, ordered by their symbols, and the first code
+ * of the next length is 4 times the successor of the last code. So it suffices to know the count of codes per length:
+ * a code of length l is complete if it is smaller than the first code of length l plus the count of codes
+ * with length l.
+ * If no code is longer than {@link #TABLE_LENGTH} bases, a single table indexed by the next maxLength bases
+ * resolves every code with one lookup (see {@link HuffmanCodebook#limitLengths(int[], int)}).
+ */
+class HuffmanDecoder {
+    /**
+     * Longest code length for which the lookup table is built, the table has 4^maxLength entries.
+     */
+    static final int TABLE_LENGTH = 8;
+
+    private final int[] counts;
+    private final int[] symbols;
+    private final int maxLength;
+    // symbol << 8 | code length for every combination of maxLength bases, -1 if no code is a prefix
+    private final int[] table;
+
+    /**
+     * @param codeLengths code length (in bases, at least 1) for every symbol, symbols are the indices
+     */
+    HuffmanDecoder(int[] codeLengths) {
+        int max = 0;
+        for (int length : codeLengths) {
+            if (length < 1)
+                throw new IllegalArgumentException("Invalid code length " + length);
+            max = Math.max(max, length);
+        }
+        maxLength = max;
+
+        counts = new int[maxLength + 1];
+        for (int length : codeLengths) {
+            counts[length]++;
+        }
+
+        // counting sort of the symbols by code length, symbols of equal length stay ascending
+        int[] offsets = new int[maxLength + 2];
+        for (int length = 1; length <= maxLength; length++) {
+            offsets[length + 1] = offsets[length] + counts[length];
+        }
+        symbols = new int[codeLengths.length];
+        for (int symbol = 0; symbol < codeLengths.length; symbol++) {
+            symbols[offsets[codeLengths[symbol]]++] = symbol;
+        }
+
+        table = maxLength <= TABLE_LENGTH ? buildTable() : null;
+    }
+
+    /**
+     * Fills the lookup table, every code occupies all entries which start with it.
+     *
+     * @return the lookup table
+     */
+    private int[] buildTable() {
+        int[] lookup = new int[1 << (2 * maxLength)];
+        Arrays.fill(lookup, -1);
+        int code = 0, index = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            for (int i = 0; i < counts[length]; i++) {
+                int first = code << (2 * (maxLength - length));
+                int last = (code + 1) << (2 * (maxLength - length));
+                if (last > lookup.length)
+                    throw new IllegalArgumentException("Code lengths do not form a prefix code");
+                Arrays.fill(lookup, first, last, symbols[index++] << 8 | length);
+                code++;
+            }
+            code *= 4;
+        }
+        return lookup;
+    }
+
+    /**
+     * Reads the next code.
+     *
+     * @param reader sequence which will be read from
+     * @return the decoded symbol or -1 if the sequence ends before a code is complete
+     * @throws IOException if the reader throws
+     */
+    int decode(SequenceReader reader) throws IOException {
+        if (table != null) {
+            // near the end of the sequence less than maxLength bases may follow, then the code is decoded base by base
+            int bases = reader.peekDNA(maxLength);
+            if (bases >= 0) {
+                int entry = table[bases];
+                if (entry < 0)
+                    throw new IllegalArgumentException("Invalid Huffman code");
+                reader.skip(entry & 0xFF);
+                return entry >>> 8;
+            }
+        }
+
+        // offset of the bases read so far from the first code of the current length,
+        // tracking the difference instead of both codes keeps the numbers small for long codes
+        int offset = 0;
+        int index = 0;
+        for (int length = 1; length <= maxLength; length++) {
+            int c = reader.read();
+            if (c < 0)
+                return -1;
+            int digit = DnaSequence.toDigit(c);
+            if (digit < 0)
+                throw new IllegalArgumentException("Invalid DNA base '" + (char) c + "'");
+            offset += digit;
+
+            int count = counts[length];
+            if (offset < count)
+                return symbols[index + offset];
+            index += count;
+            // the prefix is an inner node, there are less inner nodes than symbols in every depth
+            offset -= count;
+            if (offset >= symbols.length)
+                break;
+            offset *= 4;
+        }
+        throw new IllegalArgumentException("Invalid Huffman code");
+    }
+}
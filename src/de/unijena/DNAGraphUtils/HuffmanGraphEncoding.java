@@ -1,267 +1,290 @@
 package de.unijena.DNAGraphUtils;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import static de.unijena.DNAGraphUtils.DNAHelper.*;
 
 /**
  * Implements {@link GraphEncoding}. Uses canonical huffman code to encode adjacency list.
+ * The code length can be limited, which bounds the decode latency for skewed degree distributions.
+ * The limit is not stored separately, the decoder derives the longest code length from the header.
  */
 public class HuffmanGraphEncoding implements GraphEncoding{
-    /**
-     * Counts how often each vertex is contained in an edge.
-     *
-     * @param edges List of all edges
-     * @param vertCount Count of the vertices in the belonging graph
-     * @return  List over {@link ComparablePair} which contains 1. the frequency of the node 2. the index of the node
-     */
-    private static ArrayList<ComparablePair<Integer, Integer>> getVertFrequencies(ArrayList<Pair<Integer, Integer>> edges, int vertCount){
-        int[] vertFrequency = new int[vertCount];
-        for (Pair<Integer, Integer> edge : edges) {
-            ++vertFrequency[edge.getV1()];
-            ++vertFrequency[edge.getV2()];
-        }
-
-        ArrayList<ComparablePair<Integer, Integer>> vertAndFrequencyPairs = new ArrayList<>();
+    // smallest count of edges per parallel chunk, smaller graphs are encoded sequentially
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 1 << 14;
 
-        for (int i = 0; i < vertFrequency.length; i++) {
-            vertAndFrequencyPairs.add(new ComparablePair<>(vertFrequency[i], i));
-        }
+    private final int maxCodeLength;
 
-        return vertAndFrequencyPairs;
+    /**
+     * Creates the encoding with optimal code lengths (up to {@value HuffmanCodebook#MAX_CODE_LENGTH} bases).
+     */
+    public HuffmanGraphEncoding() {
+        this(HuffmanCodebook.MAX_CODE_LENGTH);
     }
 
     /**
-     * Recursively maps the nodes from the given Huffman Tree onto their respective depths in the Huffman tree.
+     * Creates the encoding with limited code lengths. Codes of at most
+     * {@value HuffmanDecoder#TABLE_LENGTH} bases are decoded with a single table lookup.
      *
-     * @param node Root of the current Huffman subtree, will be recursively deepened
-     * @param depth Integer indicating the current depth in the Huffman tree
-     * @param depthToNodes {@link Map} which will be used for saving the depth of each node
+     * @param maxCodeLength maximal count of bases of a vertex code, from 1 to
+     *                      {@value HuffmanCodebook#MAX_CODE_LENGTH}, graphs need at most 4^maxCodeLength vertices
      */
-    private static void generateDepthToNodesRecursive(TreeNode node, int depth, Map<Integer, TreeSet<Integer>> depthToNodes){
-        TreeNode[] children = node.getChildren();
-        if (children[0] == null) {
-            if (!depthToNodes.containsKey(depth))
-                depthToNodes.put(depth, new TreeSet<>());
-
-            depthToNodes.get(depth).add(node.getValue());
-        }
-        else {
-            for (TreeNode child : children) {
-                if (child == null)
-                    break;
-                generateDepthToNodesRecursive(child, depth + 1, depthToNodes);
-            }
-        }
+    public HuffmanGraphEncoding(int maxCodeLength) {
+        if (maxCodeLength < 1 || maxCodeLength > HuffmanCodebook.MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("Maximal code length must be between 1 and "
+                    + HuffmanCodebook.MAX_CODE_LENGTH);
+        this.maxCodeLength = maxCodeLength;
     }
 
     /**
-     * Groups all nodes in a Huffman tree by their respective depths.
-     *
-     * @param root Root of the Huffman Tree
-     * @return List of all Sets, where each set contains all Nodes belonging to one depth
+     * @return maximal count of bases of a vertex code
      */
-    private static ArrayList<TreeSet<Integer>> groupNodesByDepth(TreeNode root){
-        TreeMap<Integer, TreeSet<Integer>> depthToNodes = new TreeMap<>();
-        generateDepthToNodesRecursive(root, 1, depthToNodes);
-        return convertIntegerMapToArray(depthToNodes);
+    public int getMaxCodeLength() {
+        return maxCodeLength;
     }
 
     /**
-     * Converts a {@link Map} to a {@link ArrayList}, filling non-existing
-     * entries with empty sets.
+     * Counts how often each vertex is contained in an edge.
      *
-     * @param map Source map
-     * @return Array sourced from the given map
+     * @param graph a {@link Graph} object
+     * @return the frequency of every vertex, the index is the vertex
      */
-    private static ArrayList<TreeSet<Integer>> convertIntegerMapToArray(Map<Integer, TreeSet<Integer>> map){
-        int maxIndex = map.keySet().stream().max(Integer::compareTo).orElse(-1);
-        ArrayList<TreeSet<Integer>> arr = new ArrayList<>();
-        for (int i = 0; i <= maxIndex; i++) {
-            arr.add(map.containsKey(i) ? map.get(i) : new TreeSet<>());
+    private static int[] getVertFrequencies(Graph graph){
+        int[] vertFrequency = new int[graph.getVertexCount()];
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            ++vertFrequency[graph.getEdgeSource(i)];
+            ++vertFrequency[graph.getEdgeTarget(i)];
         }
-        return arr;
+        return vertFrequency;
     }
 
     /**
-     * Generates the canonical Huffman codebook directly from the list of node-sets.
+     * Implements {@link GraphEncoding#write(Graph, boolean, Appendable)}.
      *
-     * @param depthToNodes Contains for each depth the set of all nodes in that depth
-     * @return Canonical Huffman codebook
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param result {@link Appendable} the DNA sequence will be appended to
+     * @throws IOException if the output throws
      */
-    private static Map<Integer, String> generateVertMap(ArrayList<TreeSet<Integer>> depthToNodes){
-        Map<Integer, String> decodingMap = new HashMap<>();
-        int code = 0;
-        for (TreeSet<Integer> depthToNode : depthToNodes) {
-            for (Integer node : depthToNode) {
-                decodingMap.put(node, toDNA(code, 4));
-                code += 1;
-            }
-            code *= 4;
+    public void write(Graph graph, boolean preserveOrder, Appendable result) throws IOException {
+        int vertCount = graph.getVertexCount();
+        if (vertCount == 0) {
+            // empty lists
+            result.append(preserveOrder ? "TTT" : "TT");
+            return;
         }
-
-        return decodingMap;
+        HuffmanCodebook codebook = new HuffmanCodebook(getVertFrequencies(graph), maxCodeLength);
+        DNABuffer out = new DNABuffer(result);
+        writeHeader(codebook, vertCount, preserveOrder, out);
+        // all edges
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            codebook.appendCode(graph.getEdgeSource(i), out);
+            codebook.appendCode(graph.getEdgeTarget(i), out);
+        }
+        out.flush();
     }
 
     /**
-     * Merge-Step in the Huffman tree generation algorithm. Merges the n least frequent node to 1 new one
-     * with a frequency equal to the sum of its new child nodes.
+     * Writes the code lengths, the decoder rebuilds the canonical codebook from them.
      *
-     * @param nodes {@link PriorityQueue} containing all non-leaf nodes in the current Huffman-step
-     * @param n Count of nodes that should be combined
+     * @param codebook codebook of the vertices
+     * @param vertCount count of vertices
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @param out buffer the header will be appended to
+     * @throws IOException if the output throws
      */
-    private static void mergeLeastFrequentHuffmanNodes(PriorityQueue<TreeNode> nodes, int n){
-        TreeNode parentNode = new TreeNode();
-        TreeNode[] childrenNodes = new TreeNode[4];
-        int sumChildrenFrequency = 0;
-
-        for (int i = 0; i < n; i++) {
-            TreeNode child = nodes.poll();
-            childrenNodes[i] = child;
-            assert child != null;
-            sumChildrenFrequency += child.getFrequency();
+    private static void writeHeader(HuffmanCodebook codebook, int vertCount, boolean preserveOrder, DNABuffer out)
+            throws IOException {
+        if (preserveOrder) {
+            // delimiter T
+            out.append('T');
+            // list: for each vertex: the code length of the vertex
+            int[] codeLengths = new int[vertCount];
+            for (int i = 0; i < vertCount; i++) {
+                codeLengths[i] = codebook.getCodeLength(i);
+            }
+            appendList(codeLengths, out);
+        }
+        else{
+            // list: for each huffman tree depth: count of nodes in this depth,
+            // the root has depth 1, so the codes in depth d have d - 1 bases
+            int[] countPerDepth = new int[codebook.getMaxCodeLength() + 2];
+            for (int depth = 2; depth < countPerDepth.length; depth++) {
+                countPerDepth[depth] = codebook.getCount(depth - 1);
+            }
+            appendList(countPerDepth, out);
         }
-
-        parentNode.setChildren(childrenNodes);
-        parentNode.setFrequency(sumChildrenFrequency);
-
-        nodes.add(parentNode);
     }
 
     /**
-     * Generates a Huffman tree (with branching factor 4) from the given frequencies.
+     * Encodes a graph like {@link #toString(Graph, boolean)} with the same result, but in parallel:
+     * the vertex frequencies are counted in separate histograms per chunk of edges, the output position of every
+     * chunk of edges is computed from the code lengths and the chunks write their codes directly into one array.
      *
-     * @param frequencies List of all nodes with their respective frequencies
-     * @return Root of the constructed Huffman tree
+     * @param graph a {@link Graph} object
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return the DNA sequence of the graph
      */
-    private static TreeNode generateHuffman4aryTree(ArrayList<ComparablePair<Integer, Integer>> frequencies) {
-        PriorityQueue<TreeNode> probabilityList = new PriorityQueue<>();
-        for (ComparablePair<Integer, Integer> probability : frequencies) {
-            probabilityList.add(new TreeNode(probability.getV1(), probability.getV2()));
+    public String toStringParallel(Graph graph, boolean preserveOrder) {
+        int vertCount = graph.getVertexCount();
+        int edgeCount = graph.getEdgeCount();
+        if (vertCount == 0 || edgeCount < MIN_PARALLEL_CHUNK_SIZE)
+            return toString(graph, preserveOrder);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+
+        HuffmanCodebook codebook = new HuffmanCodebook(getVertFrequenciesParallel(graph, parallelism),
+                maxCodeLength);
+        StringBuilder header = new StringBuilder();
+        try {
+            DNABuffer out = new DNABuffer(header);
+            writeHeader(codebook, vertCount, preserveOrder, out);
+            out.flush();
+        } catch (IOException e) {
+            // a StringBuilder does not throw
+            throw new UncheckedIOException(e);
         }
 
-        int usableSymbols = 4; // since we construct a 4-ary tree
-        int initial_count = probabilityList.size() == 1 ? 1 : 2 + (probabilityList.size() - 2) % (usableSymbols - 1);
-        mergeLeastFrequentHuffmanNodes(probabilityList, initial_count);
-        while (probabilityList.size() !=  1) {
-            mergeLeastFrequentHuffmanNodes(probabilityList,  usableSymbols);
+        // more chunks than threads balance the load, every chunk needs only its start position
+        int chunkCount = Math.min(4 * parallelism, edgeCount / MIN_PARALLEL_CHUNK_SIZE);
+        long[] chunkStarts = new long[chunkCount + 1];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            long length = 0;
+            for (int i = chunkStart(chunk, chunkCount, edgeCount); i < chunkStart(chunk + 1, chunkCount, edgeCount);
+                 i++) {
+                length += codebook.getCodeLength(graph.getEdgeSource(i))
+                        + codebook.getCodeLength(graph.getEdgeTarget(i));
+            }
+            chunkStarts[chunk + 1] = length;
+        });
+        chunkStarts[0] = header.length();
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunkStarts[chunk + 1] += chunkStarts[chunk];
         }
+        if (chunkStarts[chunkCount] > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Encoded graph is too long for a String");
 
-        return probabilityList.poll();
+        char[] result = new char[(int) chunkStarts[chunkCount]];
+        header.getChars(0, header.length(), result, 0);
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            int position = (int) chunkStarts[chunk];
+            for (int i = chunkStart(chunk, chunkCount, edgeCount); i < chunkStart(chunk + 1, chunkCount, edgeCount);
+                 i++) {
+                position = codebook.writeCode(graph.getEdgeSource(i), result, position);
+                position = codebook.writeCode(graph.getEdgeTarget(i), result, position);
+            }
+        });
+        return new String(result);
     }
 
     /**
-     * Implements {@link GraphEncoding#toString(Graph, boolean)}.
+     * Counts the vertex frequencies with one histogram per chunk of edges and adds the histograms up
+     * in parallel ranges of vertices. Every histogram has a counter per vertex, so there are at most as many
+     * histograms as edges per vertex and sparse graphs are counted sequentially.
      *
      * @param graph a {@link Graph} object
-     * @param preserveOrder indicates whether the order needs to be preserved
-     * @return DNA sequence of the graph
+     * @param maxChunkCount maximal count of chunks
+     * @return the frequency of every vertex, the index is the vertex
      */
-    public String toString(Graph graph, boolean preserveOrder){
-        ArrayList<Integer> vertices = graph.getVertices();
-        ArrayList<Pair<Integer, Integer>> edges = graph.getEdges();
-        ArrayList<ComparablePair<Integer, Integer>> vertAndFrequencyPairs = getVertFrequencies(edges, vertices.size());
-        TreeNode tree = generateHuffman4aryTree(vertAndFrequencyPairs);
-        ArrayList<TreeSet<Integer>> depthToNodes = groupNodesByDepth(tree);
-        Map<Integer,String> map = generateVertMap(depthToNodes);
+    private static int[] getVertFrequenciesParallel(Graph graph, int maxChunkCount) {
+        int vertCount = graph.getVertexCount();
+        int edgeCount = graph.getEdgeCount();
+        int chunkCount = (int) Math.min(maxChunkCount, (long) edgeCount / vertCount);
+        if (chunkCount <= 1)
+            return getVertFrequencies(graph);
+        int[][] histograms = new int[chunkCount][];
+        IntStream.range(0, chunkCount).parallel().forEach(chunk -> {
+            int[] histogram = new int[vertCount];
+            for (int i = chunkStart(chunk, chunkCount, edgeCount); i < chunkStart(chunk + 1, chunkCount, edgeCount);
+                 i++) {
+                ++histogram[graph.getEdgeSource(i)];
+                ++histogram[graph.getEdgeTarget(i)];
+            }
+            histograms[chunk] = histogram;
+        });
 
-        StringBuilder result = new StringBuilder();
+        int[] vertFrequency = histograms[0];
+        IntStream.range(0, chunkCount).parallel().forEach(range -> {
+            int end = chunkStart(range + 1, chunkCount, vertCount);
+            for (int vert = chunkStart(range, chunkCount, vertCount); vert < end; vert++) {
+                for (int chunk = 1; chunk < chunkCount; chunk++) {
+                    vertFrequency[vert] += histograms[chunk][vert];
+                }
+            }
+        });
+        return vertFrequency;
+    }
 
-        if (preserveOrder) {
-            // delimiter T
-            result.append("T");
-            // list: for each vertex: the depth of the vertex in the huffman tree
-            appendList(vertices.stream().map(vert -> map.get(vert).length()).collect(Collectors.toList()), result);
-        }
-        else{
-            // list: for each huffman tree depth: count of nodes in this depth
-            appendList(depthToNodes.stream().map(TreeSet::size).collect(Collectors.toList()), result);
-        }
-        // all edges
-        for (Pair<Integer,Integer> edge:graph.getEdges()){
-            result.append(map.get(edge.getV1()));
-            result.append(map.get(edge.getV2()));
-        }
-        return result.toString();
+    /**
+     * @param chunk index of a chunk, chunkCount for the end of the last chunk
+     * @param chunkCount count of chunks
+     * @param size count of elements which are split into chunks
+     * @return index of the first element of the chunk
+     */
+    private static int chunkStart(int chunk, int chunkCount, int size) {
+        return (int) ((long) size * chunk / chunkCount);
     }
 
     /**
-     * Implements {@link GraphEncoding#load(Graph, String)}
+     * Implements {@link GraphEncoding#load(Graph, Reader)}
      * @param graph a {@link Graph} object
-     * @param repr the DNA sequence of a graph
+     * @param in reader the DNA sequence of a graph will be read from
+     * @throws IOException if the reader throws
      */
-    public void load(Graph graph, String repr){
-        if (repr.equals("TT") || repr.equals("TTT")) {
+    public void load(Graph graph, Reader in) throws IOException {
+        SequenceReader reader = new SequenceReader(in);
+        // "TT" and "TTT" encode the empty graph
+        if (reader.peek(0) == 'T' && reader.peek(1) == 'T'
+                && (reader.peek(2) < 0 || (reader.peek(2) == 'T' && reader.peek(3) < 0))) {
             return;
         }
 
-        ArrayList<Integer> vertices = new ArrayList<>();
-        ArrayList<Pair<Integer,Integer>> edges = new ArrayList<>();
-
-        boolean isOrderPreserved = repr.charAt(0) == 'T';
+        boolean isOrderPreserved = reader.peek() == 'T';
 
-        int vertCount;
-        Map<Integer, TreeSet<Integer>> depthToNodes = new HashMap<>();
+        int[] codeLengths;
         if (isOrderPreserved) {
             // preserveOrder == true:
             // delimiter T (already checked)
-            repr = repr.substring(1);
-            // list: for each vertex: the depth of the vertex in the huffman tree
-            ArrayList<Integer> nodeDepths = new ArrayList<>();
-            repr = parseList(nodeDepths, repr);
-            vertCount = nodeDepths.size();
-            for (int i = 0; i < nodeDepths.size(); i++) {
-                int depth = nodeDepths.get(i);
-                if (!depthToNodes.containsKey(depth))
-                    depthToNodes.put(depth, new TreeSet<>());
-                depthToNodes.get(depth).add(i);
-            }
+            reader.read();
+            // list: for each vertex: the code length of the vertex
+            codeLengths = parseList(reader);
             // delimiter T
             // all edges
         }
         else{
             // preserveOrder == false:
             // list: for each huffman tree depth: count of nodes in this depth
-            ArrayList<Integer> countPerDepth = new ArrayList<>();
-            repr = parseList(countPerDepth, repr);
-            vertCount = 0;
+            int[] countPerDepth = parseList(reader);
+            int vertCount = 0;
             for (int count : countPerDepth) {
-                TreeSet<Integer> set = new TreeSet<>();
-                for (int j = 0; j < count; j++) {
-                    set.add(vertCount);
-                    vertCount++;
+                vertCount += count;
+            }
+            codeLengths = new int[vertCount];
+            int vert = 0;
+            for (int depth = 0; depth < countPerDepth.length; depth++) {
+                for (int j = 0; j < countPerDepth[depth]; j++) {
+                    // the root has depth 1
+                    codeLengths[vert++] = depth - 1;
                 }
-                depthToNodes.put(depthToNodes.size(), set);
             }
             // delimiter T
             // all edges
         }
 
-
-        Map<Integer, String> map = generateVertMap(convertIntegerMapToArray(depthToNodes));
-        Map<String, Integer> invMap = invertMap(map);
-        for (int i = 0; i < vertCount; i++) {
-            vertices.add(i);
+        HuffmanDecoder decoder = new HuffmanDecoder(codeLengths);
+        int[] vertices = new int[codeLengths.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = i;
         }
+        graph.setVertices(vertices);
+        graph.setEdges(new int[0], new int[0]);
 
-        int readIndex = 0;
-        Integer firstVertOfEdge = null;
-        for (int i = readIndex + 1; i <= repr.length(); i++) {
-            String subStr = repr.subSequence(readIndex, i).toString();
-
-            if (invMap.containsKey(subStr)) {
-                readIndex = i;
-                if (firstVertOfEdge == null) {
-                    firstVertOfEdge = invMap.get(subStr);
-                } else {
-                    edges.add(new Pair<>(firstVertOfEdge, invMap.get(subStr)));
-                    firstVertOfEdge = null;
-                }
-            }
+        int firstVertOfEdge, secondVertOfEdge;
+        while ((firstVertOfEdge = decoder.decode(reader)) >= 0 && (secondVertOfEdge = decoder.decode(reader)) >= 0) {
+            graph.addEdge(firstVertOfEdge, secondVertOfEdge);
         }
-
-        graph.setEdges(edges);
-        graph.setVertices(vertices);
     }
 }
@@ -0,0 +1,193 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Wraps a {@link GraphEncoding} and records every encode and decode call in {@link EncodingMetrics}:
+ * its duration, the length of the sequence and the size of the graph, or an error if it threw.
+ * The sequences are identical to those of the wrapped encoding. Create instances with
+ * {@link EncodingMetrics#wrap(GraphEncoding)}.
+ */
+public class InstrumentedGraphEncoding implements GraphEncoding {
+    private final GraphEncoding delegate;
+    private final EncodingMetrics metrics;
+    private final EncodingMetrics.OperationMetrics encodeOrdered;
+    private final EncodingMetrics.OperationMetrics encodeUnordered;
+    private final EncodingMetrics.OperationMetrics decode;
+
+    /**
+     * @param delegate the instance of an {@link GraphEncoding} implementation which will be wrapped
+     * @param metrics metrics the calls will be recorded in
+     */
+    InstrumentedGraphEncoding(GraphEncoding delegate, EncodingMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        String name = delegate.getClass().getSimpleName();
+        encodeOrdered = metrics.getOperation(name, EncodingMetrics.ENCODE, true);
+        encodeUnordered = metrics.getOperation(name, EncodingMetrics.ENCODE, false);
+        decode = metrics.getOperation(name, EncodingMetrics.DECODE, null);
+    }
+
+    /**
+     * @return the wrapped encoding
+     */
+    public GraphEncoding getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the metrics the calls are recorded in
+     */
+    public EncodingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Implements {@link GraphEncoding#write(Graph, boolean, Appendable)}.
+     * The length of outputs which grow on append ({@link StringBuilder}, {@link StringBuffer} and
+     * {@link DnaSequence}) is read before and after writing, other outputs are counted while writing.
+     */
+    public void write(Graph graph, boolean preserveOrder, Appendable out) throws IOException {
+        if (!metrics.isEnabled()) {
+            delegate.write(graph, preserveOrder, out);
+            return;
+        }
+        EncodingMetrics.OperationMetrics operation = preserveOrder ? encodeOrdered : encodeUnordered;
+        long start = System.nanoTime();
+        try {
+            long length;
+            if (out instanceof StringBuilder || out instanceof StringBuffer || out instanceof DnaSequence) {
+                int before = ((CharSequence) out).length();
+                delegate.write(graph, preserveOrder, out);
+                length = ((CharSequence) out).length() - before;
+            } else {
+                CountingAppendable counter = new CountingAppendable(out);
+                delegate.write(graph, preserveOrder, counter);
+                length = counter.count;
+            }
+            operation.record(System.nanoTime() - start, graph, length);
+        } catch (IOException | RuntimeException | Error e) {
+            operation.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * Implements {@link GraphEncoding#load(Graph, CharSequence)}, the wrapped encoding decodes the sequence itself.
+     */
+    @Override
+    public void load(Graph graph, CharSequence repr) {
+        if (!metrics.isEnabled()) {
+            delegate.load(graph, repr);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.load(graph, repr);
+            decode.record(System.nanoTime() - start, graph, repr.length());
+        } catch (RuntimeException | Error e) {
+            decode.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * Implements {@link GraphEncoding#load(Graph, Reader)}, the characters are counted while reading.
+     */
+    public void load(Graph graph, Reader in) throws IOException {
+        if (!metrics.isEnabled()) {
+            delegate.load(graph, in);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            CountingReader counter = new CountingReader(in);
+            delegate.load(graph, counter);
+            decode.record(System.nanoTime() - start, graph, counter.count);
+        } catch (IOException | RuntimeException | Error e) {
+            decode.recordError();
+            throw e;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Instrumented" + delegate.getClass().getSimpleName();
+    }
+
+    /**
+     * Passes characters to an {@link Appendable} and counts them.
+     */
+    private static class CountingAppendable implements Appendable {
+        private final Appendable out;
+        private long count;
+
+        /**
+         * @param out output the characters will be appended to
+         */
+        private CountingAppendable(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            CharSequence sequence = csq == null ? "null" : csq;
+            out.append(sequence);
+            count += sequence.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            out.append(csq, start, end);
+            count += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            count++;
+            return this;
+        }
+    }
+
+    /**
+     * Reads from a {@link Reader} and counts the characters.
+     */
+    private static class CountingReader extends FilterReader {
+        private long count;
+
+        /**
+         * @param in reader the characters will be read from
+         */
+        private CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0)
+                count++;
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = super.read(cbuf, off, len);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups {@link Graph} objects into isomorphism classes.
+ * Graphs are bucketed by invariants which are cheap to compute: count of vertices and edges, the sorted degree
+ * sequence and the colour histogram of the stable colour refinement. Only graphs in the same bucket can be
+ * isomorphic, so the full isomorphism check is only executed against the class representatives of one bucket.
+ * Graphs must not be modified after they were added to the index.
+ */
+public class IsomorphismClassIndex {
+    private final Map<Invariants, Bucket> buckets = new HashMap<>();
+    private final List<List<Graph>> classes = new ArrayList<>();
+    private int graphCount;
+
+    /**
+     * Adds a graph to the index. If an isomorphic graph was added before, the graph joins its class,
+     * otherwise it becomes the representative of a new class.
+     *
+     * @param graph a {@link Graph} object
+     * @return id of the isomorphism class of the graph, ids are assigned consecutively starting at 0
+     */
+    public int add(Graph graph) {
+        Invariants invariants = new Invariants(graph);
+        Bucket bucket = buckets.get(invariants);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(invariants, bucket);
+        }
+
+        int classId = bucket.find(graph);
+        if (classId < 0) {
+            classId = classes.size();
+            classes.add(new ArrayList<>());
+            bucket.classIds.add(classId);
+        }
+        classes.get(classId).add(graph);
+        bucket.graphCount++;
+        graphCount++;
+        return classId;
+    }
+
+    /**
+     * Searches the isomorphism class of a graph without adding it.
+     *
+     * @param graph a {@link Graph} object
+     * @return id of the isomorphism class of the graph or -1 if no isomorphic graph was added
+     */
+    public int lookup(Graph graph) {
+        Bucket bucket = buckets.get(new Invariants(graph));
+        return bucket == null ? -1 : bucket.find(graph);
+    }
+
+    /**
+     * @param classId id of an isomorphism class
+     * @return the first graph that was added to the class
+     */
+    public Graph getRepresentative(int classId) {
+        return classes.get(classId).get(0);
+    }
+
+    /**
+     * @return unmodifiable list of all isomorphism classes ordered by their id,
+     *         every class lists its graphs in the order they were added
+     */
+    public List<List<Graph>> getClasses() {
+        List<List<Graph>> result = new ArrayList<>(classes.size());
+        for (List<Graph> isomorphismClass : classes) {
+            result.add(Collections.unmodifiableList(isomorphismClass));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return count of isomorphism classes
+     */
+    public int getClassCount() {
+        return classes.size();
+    }
+
+    /**
+     * @return count of added graphs
+     */
+    public int getGraphCount() {
+        return graphCount;
+    }
+
+    /**
+     * @return statistics of every bucket of graphs with equal invariants
+     */
+    public List<BucketStatistics> getBucketStatistics() {
+        List<BucketStatistics> statistics = new ArrayList<>(buckets.size());
+        for (Map.Entry<Invariants, Bucket> entry : buckets.entrySet()) {
+            Invariants invariants = entry.getKey();
+            Bucket bucket = entry.getValue();
+            statistics.add(new BucketStatistics(invariants.vertexCount, invariants.edgeCount, bucket.graphCount,
+                    bucket.classIds.size(), bucket.isomorphismChecks));
+        }
+        return statistics;
+    }
+
+    /**
+     * Graphs with equal invariants, split into isomorphism classes.
+     */
+    private class Bucket {
+        private final List<Integer> classIds = new ArrayList<>();
+        private int graphCount;
+        private long isomorphismChecks;
+
+        /**
+         * @param graph a {@link Graph} object with the invariants of the bucket
+         * @return id of the class of an isomorphic graph or -1
+         */
+        private int find(Graph graph) {
+            for (int classId : classIds) {
+                isomorphismChecks++;
+                if (getRepresentative(classId).isIsomorphicTo(graph))
+                    return classId;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Invariants of a graph under isomorphism. Equal invariants are necessary but not sufficient for isomorphism.
+     */
+    private static class Invariants {
+        private final int vertexCount;
+        private final int edgeCount;
+        private final long degreeHash;
+        private final long colourHash;
+
+        /**
+         * @param graph a {@link Graph} object
+         */
+        private Invariants(Graph graph) {
+            vertexCount = graph.getVertexCount();
+            edgeCount = graph.getEdgeCount();
+
+            AdjacencyIndex index = graph.getAdjacencyIndex();
+            long degrees = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                // sum of mixed values is a hash of the degree multiset
+                degrees += ColourRefinement.mix(((long) index.getOutDegree(v) << 32) | index.getInDegree(v));
+            }
+            degreeHash = degrees;
+
+            long colours = 0;
+            for (long colour : new ColourRefinement(index).refineCompletely().getColours()) {
+                colours += ColourRefinement.mix(colour);
+            }
+            colourHash = colours;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Invariants))
+                return false;
+            Invariants other = (Invariants) o;
+            return vertexCount == other.vertexCount && edgeCount == other.edgeCount
+                    && degreeHash == other.degreeHash && colourHash == other.colourHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) ColourRefinement.mix(colourHash + 31 * (degreeHash + 31L * (edgeCount + 31L * vertexCount)));
+        }
+    }
+
+    /**
+     * Statistics of one bucket of graphs with equal invariants.
+     */
+    public static class BucketStatistics {
+        private final int vertexCount;
+        private final int edgeCount;
+        private final int graphCount;
+        private final int classCount;
+        private final long isomorphismChecks;
+
+        /**
+         * @param vertexCount count of vertices of the graphs in the bucket
+         * @param edgeCount count of edges of the graphs in the bucket
+         * @param graphCount count of graphs in the bucket
+         * @param classCount count of isomorphism classes in the bucket
+         * @param isomorphismChecks count of full isomorphism checks executed in the bucket
+         */
+        BucketStatistics(int vertexCount, int edgeCount, int graphCount, int classCount, long isomorphismChecks) {
+            this.vertexCount = vertexCount;
+            this.edgeCount = edgeCount;
+            this.graphCount = graphCount;
+            this.classCount = classCount;
+            this.isomorphismChecks = isomorphismChecks;
+        }
+
+        /**
+         * @return count of vertices of the graphs in the bucket
+         */
+        public int getVertexCount() {
+            return vertexCount;
+        }
+
+        /**
+         * @return count of edges of the graphs in the bucket
+         */
+        public int getEdgeCount() {
+            return edgeCount;
+        }
+
+        /**
+         * @return count of graphs in the bucket
+         */
+        public int getGraphCount() {
+            return graphCount;
+        }
+
+        /**
+         * @return count of isomorphism classes in the bucket
+         */
+        public int getClassCount() {
+            return classCount;
+        }
+
+        /**
+         * @return count of full isomorphism checks executed in the bucket, including lookups
+         */
+        public long getIsomorphismChecks() {
+            return isomorphismChecks;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + vertexCount + ", " + edgeCount + "): " + graphCount + " graphs, " + classCount
+                    + " classes, " + isomorphismChecks + " checks";
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Depth first search for an isomorphism between two directed multigraphs (VF2 style).
+ * The vertices of g1 are mapped one after another onto the vertices of g2. Every new pair is checked against
+ * the already mapped vertices, so the search space is never materialized.
+ * Only vertices with the same colour (see {@link ColourRefinement}) are mapped onto each other.
+ * Vertices are addressed by their position in the {@link AdjacencyIndex}.
+ */
+class IsomorphismMatcher {
+    private final AdjacencyIndex g1;
+    private final AdjacencyIndex g2;
+    private final int vertexCount;
+    private final int[] selfLoops1;
+    private final int[] selfLoops2;
+    private final long[] colours1;
+    private final long[] colours2;
+
+    // g2 vertices sorted by their colour, used as candidates for vertices without mapped neighbours
+    private final int[] g2ByColour;
+    private final long[] sortedColours2;
+
+    // matching order of the g1 vertices and for each of them an earlier neighbour (or -1)
+    private final int[] order;
+    private final int[] parent;
+    private final boolean[] parentIsSource;
+
+    private final int[] g1ToG2;
+    private final int[] g2ToG1;
+
+    /**
+     * Creates a matcher for two graphs.
+     *
+     * @param g1 index of the first graph
+     * @param g2 index of the second graph
+     * @param colours1 colour of every vertex in g1
+     * @param colours2 colour of every vertex in g2, computed the same way as colours1
+     */
+    IsomorphismMatcher(AdjacencyIndex g1, AdjacencyIndex g2, long[] colours1, long[] colours2) {
+        this.g1 = g1;
+        this.g2 = g2;
+        this.vertexCount = g1.getVertexCount();
+        this.selfLoops1 = countSelfLoops(g1);
+        this.selfLoops2 = countSelfLoops(g2);
+        this.colours1 = colours1;
+        this.colours2 = colours2;
+        this.g2ByColour = sortByColour(colours2);
+        this.sortedColours2 = new long[g2ByColour.length];
+        for (int i = 0; i < g2ByColour.length; i++) {
+            sortedColours2[i] = colours2[g2ByColour[i]];
+        }
+        this.order = new int[vertexCount];
+        this.parent = new int[vertexCount];
+        this.parentIsSource = new boolean[vertexCount];
+        this.g1ToG2 = new int[vertexCount];
+        this.g2ToG1 = new int[g2.getVertexCount()];
+    }
+
+    /**
+     * Counts the self loops of every vertex.
+     *
+     * @param graph index of a graph
+     * @return count of self loops per vertex
+     */
+    private static int[] countSelfLoops(AdjacencyIndex graph) {
+        int[] selfLoops = new int[graph.getVertexCount()];
+        for (int v = 0; v < selfLoops.length; v++) {
+            selfLoops[v] = graph.countEdges(v, v);
+        }
+        return selfLoops;
+    }
+
+    /**
+     * @param colours colour of every vertex
+     * @return all vertex positions sorted by their colour
+     */
+    private static int[] sortByColour(long[] colours) {
+        Integer[] sorted = new Integer[colours.length];
+        for (int v = 0; v < sorted.length; v++) {
+            sorted[v] = v;
+        }
+        Arrays.sort(sorted, (v, w) -> Long.compare(colours[v], colours[w]));
+
+        int[] result = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            result[i] = sorted[i];
+        }
+        return result;
+    }
+
+    /**
+     * Searches for an isomorphism.
+     *
+     * @return true if g1 and g2 are isomorphic to each other, false if not
+     */
+    boolean match() {
+        if (vertexCount != g2.getVertexCount() || g1.getOutTargets().length != g2.getOutTargets().length)
+            return false;
+
+        computeOrder();
+        Arrays.fill(g1ToG2, -1);
+        Arrays.fill(g2ToG1, -1);
+        int[] cursor = new int[vertexCount + 1];
+
+        int depth = 0;
+        cursor[0] = -1;
+        while (depth >= 0) {
+            if (depth == vertexCount)
+                return true;
+
+            int vert = order[depth];
+            if (g1ToG2[vert] >= 0) {
+                g2ToG1[g1ToG2[vert]] = -1;
+                g1ToG2[vert] = -1;
+            }
+
+            int candidate = nextCandidate(depth, cursor);
+            if (candidate < 0) {
+                depth--;
+                continue;
+            }
+
+            if (isFeasible(vert, candidate)) {
+                g1ToG2[vert] = candidate;
+                g2ToG1[candidate] = vert;
+                depth++;
+                cursor[depth] = -1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the found isomorphism, only valid after {@link #match()} returned true.
+     *
+     * @return for every vertex position in g1 the position of its image in g2
+     */
+    int[] getMapping() {
+        return g1ToG2.clone();
+    }
+
+    /**
+     * Orders the g1 vertices so that every vertex is as constrained as possible when it gets mapped.
+     * Every component starts with the vertex whose colour is the rarest (ties are broken by the highest degree),
+     * afterwards the vertex with the most edges to already ordered vertices follows.
+     * Every vertex except the roots remembers an ordered neighbour, which restricts its candidates.
+     */
+    private void computeOrder() {
+        Integer[] byRarity = new Integer[vertexCount];
+        int[] rarity = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            byRarity[v] = v;
+            rarity[v] = colourRangeEnd(colours1[v]) - colourRangeStart(colours1[v]);
+        }
+        Arrays.sort(byRarity, (v, w) -> rarity[v] != rarity[w]
+                ? Integer.compare(rarity[v], rarity[w])
+                : Integer.compare(degree(g1, w), degree(g1, v)));
+
+        boolean[] ordered = new boolean[vertexCount];
+        int[] connections = new int[vertexCount];
+        // entries: connections to ordered vertices, degree, vertex; outdated entries are skipped
+        PriorityQueue<int[]> frontier = new PriorityQueue<>((e1, e2) -> e1[0] != e2[0]
+                ? Integer.compare(e2[0], e1[0])
+                : Integer.compare(e2[1], e1[1]));
+        int count = 0;
+        for (int root : byRarity) {
+            if (ordered[root])
+                continue;
+            frontier.add(new int[]{0, degree(g1, root), root});
+
+            while (!frontier.isEmpty()) {
+                int[] entry = frontier.poll();
+                int vert = entry[2];
+                if (ordered[vert] || entry[0] != connections[vert])
+                    continue;
+                ordered[vert] = true;
+                order[count] = vert;
+                parent[count] = -1;
+                count++;
+
+                count = visitNeighbours(vert, g1.getOutOffsets(), g1.getOutTargets(), true, ordered, connections, frontier, count);
+                count = visitNeighbours(vert, g1.getInOffsets(), g1.getInSources(), false, ordered, connections, frontier, count);
+            }
+        }
+    }
+
+    /**
+     * Updates the frontier after a vertex was ordered. Neighbours that are already ordered may serve as parent of
+     * the new vertex, all other neighbours get one more connection.
+     *
+     * @param vert the newly ordered vertex
+     * @param offsets row offsets of g1
+     * @param neighbours neighbours of g1
+     * @param outgoing true if the rows contain out neighbours, false if they contain in neighbours
+     * @param ordered marks all ordered vertices
+     * @param connections count of edges to ordered vertices for every vertex
+     * @param frontier queue of vertices that are not ordered yet
+     * @param count count of ordered vertices
+     * @return count of ordered vertices
+     */
+    private int visitNeighbours(int vert, int[] offsets, int[] neighbours, boolean outgoing, boolean[] ordered,
+                                int[] connections, PriorityQueue<int[]> frontier, int count) {
+        for (int i = offsets[vert]; i < offsets[vert + 1]; i++) {
+            int neighbour = neighbours[i];
+            if (neighbour == vert)
+                continue;
+            if (ordered[neighbour]) {
+                if (parent[count - 1] < 0) {
+                    parent[count - 1] = neighbour;
+                    // vert is an out neighbour of its parent if the edge points from the parent to vert
+                    parentIsSource[count - 1] = !outgoing;
+                }
+            } else {
+                connections[neighbour]++;
+                frontier.add(new int[]{connections[neighbour], degree(g1, neighbour), neighbour});
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param graph index of a graph
+     * @param vert position of a vertex
+     * @return sum of in and out degree
+     */
+    private static int degree(AdjacencyIndex graph, int vert) {
+        return graph.getOutDegree(vert) + graph.getInDegree(vert);
+    }
+
+    /**
+     * @param colour colour of a vertex
+     * @return first index of the colour in the sorted g2 colours
+     */
+    private int colourRangeStart(long colour) {
+        int from = 0, to = sortedColours2.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sortedColours2[mid] < colour)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
+    /**
+     * @param colour colour of a vertex
+     * @return index after the last occurrence of the colour in the sorted g2 colours
+     */
+    private int colourRangeEnd(long colour) {
+        int from = 0, to = sortedColours2.length;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sortedColours2[mid] <= colour)
+                from = mid + 1;
+            else
+                to = mid;
+        }
+        return from;
+    }
+
+    /**
+     * Advances the cursor of the given depth to the next unused g2 vertex.
+     * If the g1 vertex has a mapped parent, only the matching neighbours of the parent's image are candidates,
+     * otherwise all g2 vertices with the same colour are.
+     *
+     * @param depth current search depth
+     * @param cursor position in the candidate range for every depth, -1 if the depth was just entered
+     * @return position of the next candidate in g2 or -1 if there is none left
+     */
+    private int nextCandidate(int depth, int[] cursor) {
+        int from, to;
+        int[] candidates;
+        boolean isRow = parent[depth] >= 0;
+        if (!isRow) {
+            long colour = colours1[order[depth]];
+            candidates = g2ByColour;
+            from = colourRangeStart(colour);
+            to = colourRangeEnd(colour);
+        } else {
+            int parentImage = g1ToG2[parent[depth]];
+            int[] offsets = parentIsSource[depth] ? g2.getOutOffsets() : g2.getInOffsets();
+            candidates = parentIsSource[depth] ? g2.getOutTargets() : g2.getInSources();
+            from = offsets[parentImage];
+            to = offsets[parentImage + 1];
+        }
+
+        for (int i = cursor[depth] < 0 ? from : cursor[depth] + 1; i < to; i++) {
+            int candidate = candidates[i];
+            // neighbour rows are sorted, parallel edges yield the same candidate again
+            if (isRow && i > from && candidates[i - 1] == candidate)
+                continue;
+            if (g2ToG1[candidate] < 0) {
+                cursor[depth] = i;
+                return candidate;
+            }
+        }
+        cursor[depth] = to;
+        return -1;
+    }
+
+    /**
+     * Checks whether mapping vert onto candidate is consistent with all pairs mapped so far.
+     *
+     * @param vert position of the vertex in g1
+     * @param candidate position of the vertex in g2
+     * @return true if the pair can be added to the mapping
+     */
+    private boolean isFeasible(int vert, int candidate) {
+        if (colours1[vert] != colours2[candidate]
+                || g1.getOutDegree(vert) != g2.getOutDegree(candidate)
+                || g1.getInDegree(vert) != g2.getInDegree(candidate)
+                || selfLoops1[vert] != selfLoops2[candidate])
+            return false;
+
+        return isRowConsistent(vert, candidate, g1.getOutOffsets(), g1.getOutTargets(), g2.getOutOffsets(), g2.getOutTargets(), true)
+                && isRowConsistent(vert, candidate, g1.getInOffsets(), g1.getInSources(), g2.getInOffsets(), g2.getInSources(), false);
+    }
+
+    /**
+     * Compares the edges between the new pair and the already mapped vertices in one direction.
+     * Every mapped neighbour of vert must be connected to candidate by the same count of parallel edges,
+     * and candidate must not have additional edges to mapped vertices.
+     *
+     * @param vert position of the vertex in g1
+     * @param candidate position of the vertex in g2
+     * @param offsets1 row offsets of g1
+     * @param neighbours1 neighbours of g1
+     * @param offsets2 row offsets of g2
+     * @param neighbours2 neighbours of g2
+     * @param outgoing true if the rows contain out neighbours, false if they contain in neighbours
+     * @return true if both rows agree on all mapped vertices
+     */
+    private boolean isRowConsistent(int vert, int candidate, int[] offsets1, int[] neighbours1,
+                                    int[] offsets2, int[] neighbours2, boolean outgoing) {
+        int mappedEdges1 = 0;
+        int end = offsets1[vert + 1];
+        for (int i = offsets1[vert]; i < end; ) {
+            int neighbour = neighbours1[i];
+            int multiplicity = 1;
+            while (i + multiplicity < end && neighbours1[i + multiplicity] == neighbour)
+                multiplicity++;
+            i += multiplicity;
+
+            int image = g1ToG2[neighbour];
+            if (neighbour == vert || image < 0)
+                continue;
+            int imageMultiplicity = outgoing ? g2.countEdges(candidate, image) : g2.countEdges(image, candidate);
+            if (imageMultiplicity != multiplicity)
+                return false;
+            mappedEdges1 += multiplicity;
+        }
+
+        int mappedEdges2 = 0;
+        for (int i = offsets2[candidate]; i < offsets2[candidate + 1]; i++) {
+            int neighbour = neighbours2[i];
+            if (neighbour != candidate && g2ToG1[neighbour] >= 0)
+                mappedEdges2++;
+        }
+        return mappedEdges1 == mappedEdges2;
+    }
+}
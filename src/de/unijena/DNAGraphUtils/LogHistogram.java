@@ -0,0 +1,79 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative long values with log-linear buckets like an HDR histogram: values below 8 are counted
+ * exactly, every larger power of two is split into 8 buckets, so a bucket is at most 12.5% wide.
+ * Recording is lock-free and never allocates, so it can be called from many threads at once.
+ */
+class LogHistogram {
+    // binary logarithm of the count of buckets per power of two
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // buckets up to the largest long
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value non-negative value, negative values are counted as 0
+     */
+    void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(getBucket(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Sets all counts to 0. Values which are recorded concurrently may be partially kept.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    /**
+     * @return copy of the current counts, the counts of different buckets are not read atomically
+     */
+    EncodingMetrics.HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new EncodingMetrics.HistogramSnapshot(copy, sum.sum(), max.get());
+    }
+
+    /**
+     * @param value non-negative value
+     * @return index of the bucket of the value
+     */
+    static int getBucket(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * @param bucket index of a bucket
+     * @return largest value of the bucket
+     */
+    static long getUpperBound(long bucket) {
+        if (bucket < SUB_BUCKET_COUNT)
+            return bucket;
+        int exponent = (int) (bucket / SUB_BUCKET_COUNT) + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKET_COUNT;
+        long lowerBound = (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -1,101 +1,140 @@
 package de.unijena.DNAGraphUtils;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Implements {@link GraphEncoding}. Used to transfer from and to the natural Form e.g. G=({a,b,c},{(a,b),(a,d)})
  */
 public class NaturalGraphEncoding implements GraphEncoding {
     /**
-     * Implements {@link GraphEncoding::load}
+     * Implements {@link GraphEncoding#load(Graph, Reader)}
      * @param graph a {@link Graph} object
-     * @param repr the DNA sequence of a graph
+     * @param in reader the natural form of a graph will be read from
+     * @throws IOException if the reader throws
      */
-    public void load(Graph graph, String repr) {
-        ArrayList<String> graphElements = new ArrayList<>();
-        Matcher m = Pattern.compile("(?<=\\{).+?(?=})")
-                .matcher(repr);
-        while (m.find()){
-            graphElements.add(m.group());
-        }
-
-        String vertsRepr = "";
-        String edgesRepr = "";
-
-        if (!graphElements.get(0).equals("},{")){
-            vertsRepr = graphElements.get(0);
-        }
-        if (graphElements.size() > 1){
-            edgesRepr = graphElements.get(1).replaceAll("[()]", "");
-        }
-
+    public void load(Graph graph, Reader in) throws IOException {
+        SequenceReader reader = new SequenceReader(in);
         Map<String, Integer> vertToInt = new HashMap<>();
+        graph.setVertices(new int[0]);
+        graph.setEdges(new int[0], new int[0]);
 
-        if (!vertsRepr.equals("")) {
-            ArrayList<Integer> vertices = new ArrayList<>();
-
-            for (String vert : vertsRepr.split(",")) {
-                Integer vertRepr = vertToInt.size();
-                vertToInt.put(vert, vertRepr);
-                vertices.add(vertRepr);
-            }
-
-            graph.setVertices(vertices);
+        skipTo(reader, '{');
+        if (reader.peek() == '}')
+            reader.read();
+        else {
+            int c;
+            do {
+                int vertRepr = vertToInt.size();
+                vertToInt.put(readName(reader), vertRepr);
+                graph.addVertex(vertRepr);
+            } while ((c = reader.read()) == ',');
+            checkClosingBrace(c);
         }
+
+        skipTo(reader, '{');
+        if (reader.peek() == '}')
+            reader.read();
         else {
-            graph.setVertices(new ArrayList<>());
+            int c;
+            do {
+                reader.expect('(');
+                int source = toVert(vertToInt, readName(reader));
+                reader.expect(',');
+                int target = toVert(vertToInt, readName(reader));
+                reader.expect(')');
+                graph.addEdge(source, target);
+            } while ((c = reader.read()) == ',');
+            checkClosingBrace(c);
         }
+    }
 
-        ArrayList<Pair<Integer,Integer>> edges = new ArrayList<>();
+    /**
+     * Consumes all characters up to and including the given one.
+     *
+     * @param reader natural form which will be read from
+     * @param c character to search
+     * @throws IOException if the reader throws
+     */
+    private static void skipTo(SequenceReader reader, char c) throws IOException {
+        int read;
+        do {
+            read = reader.read();
+            if (read < 0)
+                throw new IllegalArgumentException("Missing '" + c + "'");
+        } while (read != c);
+    }
 
-        if (!edgesRepr.equals("")){
-            String[] edgesElements = edgesRepr.split(",");
+    /**
+     * Reads the name of a vertex up to the next separator.
+     *
+     * @param reader natural form which will be read from
+     * @return name of the vertex
+     * @throws IOException if the reader throws
+     */
+    private static String readName(SequenceReader reader) throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = reader.peek()) >= 0 && "{}(),".indexOf(c) < 0) {
+            name.append((char) reader.read());
+        }
+        return name.toString();
+    }
 
-            for (int i = 0; i < edgesElements.length; i+=2) {
-                Integer v1 = vertToInt.get(edgesElements[i]);
-                Integer v2 = vertToInt.get(edgesElements[i + 1]);
-                edges.add(new Pair<>(v1, v2));
-            }
+    /**
+     * @param vertToInt translation of the vertex names
+     * @param name name of a vertex
+     * @return the translated vertex
+     */
+    private static int toVert(Map<String, Integer> vertToInt, String name) {
+        Integer vert = vertToInt.get(name);
+        if (vert == null)
+            throw new IllegalArgumentException("Edge references unknown vertex " + name);
+        return vert;
+    }
 
-            graph.setEdges(edges);
-        }
-        else {
-            graph.setEdges(new ArrayList<>());
-        }
+    /**
+     * @param c character read after a list element
+     */
+    private static void checkClosingBrace(int c) {
+        if (c != '}')
+            throw new IllegalArgumentException("Expected '}' but found " + (c < 0 ? "end of input" : "'" + (char) c + "'"));
     }
 
     /**
-     * Implements {@link GraphEncoding::toString}.
+     * Implements {@link GraphEncoding#write(Graph, boolean, Appendable)}.
+     * The natural form is collected in a {@link DNABuffer} and passed to the output in blocks.
      *
      * @param graph a {@link Graph} object
      * @param preserveOrder indicates whether the order needs to be preserved
-     * @return DNA sequence of the graph
+     * @param out {@link Appendable} the natural form will be appended to
+     * @throws IOException if the output throws
      */
-    public String toString(Graph graph, boolean preserveOrder){
-        StringBuilder sb = new StringBuilder();
-        sb.append("G=({");
-
-        for (int vert : graph.getVertices()){
-            sb.append(vert).append(",");
+    public void write(Graph graph, boolean preserveOrder, Appendable out) throws IOException {
+        DNABuffer buffer = new DNABuffer(out);
+        buffer.append("G=({");
+
+        for (int i = 0; i < graph.getVertexCount(); i++) {
+            if (i > 0)
+                buffer.append(',');
+            buffer.appendDecimal(graph.getVertex(i));
         }
 
-        if (graph.getVertices().size() > 0)
-            sb.deleteCharAt(sb.length()-1);
-
-        sb.append("},{");
+        buffer.append("},{");
 
-        for (Pair<Integer, Integer> edge : graph.getEdges()) {
-            sb.append("(").append(edge.getV1()).append(",").append(edge.getV2()).append("),");
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            if (i > 0)
+                buffer.append(',');
+            buffer.append('(');
+            buffer.appendDecimal(graph.getEdgeSource(i));
+            buffer.append(',');
+            buffer.appendDecimal(graph.getEdgeTarget(i));
+            buffer.append(')');
         }
-        if (graph.getEdges().size() > 0)
-            sb.deleteCharAt(sb.length()-1);
-
-        sb.append("})");
 
-        return sb.toString();
+        buffer.append("})");
+        buffer.flush();
     }
 }
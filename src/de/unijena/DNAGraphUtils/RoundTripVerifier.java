@@ -0,0 +1,392 @@
+package de.unijena.DNAGraphUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Checks that graphs survive the round trip through {@link GraphEncoding} implementations: every random graph is
+ * encoded with and without preserveOrder, decoded and compared with {@link Graph#isIsomorphicTo(Graph)}.
+ * The graphs are split into shards which run in parallel. Every shard draws the seeds of its graphs from its own
+ * {@link SplittableRandom}, split from the seed of the run, so a failing graph can be recreated from its seed with
+ * {@link #createGraph(long, int, int)}. Failing graphs are shrunk to a minimal graph which still fails.
+ */
+public class RoundTripVerifier {
+    private static final int SHARD_COUNT = 64;
+    // graphs per vertex a shard creates before the graphs may grow by one vertex
+    private static final int GRAPHS_PER_SIZE = 16;
+    // failures beyond this count are only counted
+    private static final int MAX_REPORTED_FAILURES = 100;
+
+    private final GraphEncoding[] encodings;
+
+    /**
+     * @param encodings instances of {@link GraphEncoding} implementations which will be verified
+     */
+    public RoundTripVerifier(GraphEncoding... encodings) {
+        this.encodings = encodings.clone();
+    }
+
+    /**
+     * Verifies random graphs until the count of graphs is reached or the time is over.
+     * The graphs start with up to 1 vertex and grow up to "maxVertices", both uniformly and normally distributed
+     * edges are used. The empty graph is included.
+     *
+     * @param seed seed of the run
+     * @param graphCount count of graphs, Long.MAX_VALUE to run until the time is over
+     * @param timeBudgetMillis maximal duration in milliseconds, Long.MAX_VALUE to run until the count is reached
+     * @param maxVertices maximal count of vertices of a graph
+     * @return the report of the run
+     */
+    public Report verify(long seed, long graphCount, long timeBudgetMillis, int maxVertices) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] shardRandoms = new SplittableRandom[SHARD_COUNT];
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            shardRandoms[shard] = root.split();
+        }
+        long start = System.nanoTime();
+        long deadline = timeBudgetMillis >= Long.MAX_VALUE / 1_000_000 ? Long.MAX_VALUE
+                : start + timeBudgetMillis * 1_000_000;
+        AtomicLong graphs = new AtomicLong();
+        AtomicLong failureCount = new AtomicLong();
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        IntStream.range(0, SHARD_COUNT).parallel().forEach(shard -> {
+            // the first shards get one graph more if the count is not divisible
+            long shardGraphs = graphCount / SHARD_COUNT + (shard < graphCount % SHARD_COUNT ? 1 : 0);
+            SplittableRandom rand = shardRandoms[shard];
+            for (long i = 0; i < shardGraphs && System.nanoTime() - deadline < 0; i++) {
+                int sizeLimit = (int) Math.min(maxVertices, 1 + i / GRAPHS_PER_SIZE);
+                long graphSeed = rand.nextLong();
+                Graph graph = createGraph(graphSeed, sizeLimit, maxVertices);
+                for (GraphEncoding encoding : encodings) {
+                    for (boolean preserveOrder : new boolean[]{true, false}) {
+                        String error = check(graph, encoding, preserveOrder);
+                        if (error != null && failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+                            Graph minimal = shrink(graph, encoding, preserveOrder);
+                            failures.add(new Failure(encoding, preserveOrder, graphSeed, sizeLimit, maxVertices, graph,
+                                    minimal, check(minimal, encoding, preserveOrder)));
+                        }
+                    }
+                }
+                graphs.incrementAndGet();
+            }
+        });
+
+        List<Failure> sortedFailures = new ArrayList<>(failures);
+        sortedFailures.sort((a, b) -> Long.compare(a.getSeed(), b.getSeed()));
+        return new Report(graphs.get(), graphs.get() * encodings.length * 2, failureCount.get(), sortedFailures,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Creates the graph of a seed. Half of the graphs select the vertices of the edges uniformly, the other half
+     * normally distributed.
+     *
+     * @param graphSeed seed of the graph
+     * @param sizeLimit maximal count of vertices of this graph, it may also have no vertices
+     * @param maxVertices maximal count of vertices of the run, only used to cap the count of edges
+     * @return a new {@link Graph} object
+     */
+    public static Graph createGraph(long graphSeed, int sizeLimit, int maxVertices) {
+        Random rand = new Random(graphSeed);
+        int vertCount = rand.nextInt(sizeLimit + 1);
+        int maxEdgeCount = (int) Math.min((long) vertCount * vertCount, 4L * maxVertices);
+        int edgeCount = rand.nextInt(maxEdgeCount + 1);
+        if (rand.nextBoolean())
+            return GraphBenchmark.createGraph(vertCount, edgeCount, rand);
+        double mean = vertCount / 2.d, variance = rand.nextDouble() * (vertCount / 2.d);
+        return GraphBenchmark.createGraph(vertCount, edgeCount, mean, variance, rand);
+    }
+
+    /**
+     * @param graph a {@link Graph} object
+     * @param encoding an instance of an {@link GraphEncoding} implementation
+     * @param preserveOrder indicates whether the order needs to be preserved
+     * @return description of the error or null if the decoded graph is isomorphic
+     */
+    private static String check(Graph graph, GraphEncoding encoding, boolean preserveOrder) {
+        String sequence = null;
+        try {
+            sequence = graph.toString(encoding, preserveOrder);
+            Graph decoded = new Graph(sequence, encoding);
+            if (!graph.isIsomorphicTo(decoded))
+                return "Decoded graph " + decoded + " of " + sequence + " is not isomorphic";
+            return null;
+        } catch (RuntimeException | StackOverflowError e) {
+            return (sequence == null ? "Encoding" : "Decoding " + sequence) + " failed: " + e;
+        }
+    }
+
+    /**
+     * Removes edges and vertices from a failing graph as long as it keeps failing.
+     * The remaining vertices are renumbered to 0 to n - 1.
+     *
+     * @param graph failing graph with the vertices 0 to n - 1
+     * @param encoding the failing encoding
+     * @param preserveOrder the failing order option
+     * @return a graph which fails and fails no more if any single edge or vertex is removed
+     */
+    private static Graph shrink(Graph graph, GraphEncoding encoding, boolean preserveOrder) {
+        Graph current = graph;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int edge = current.getEdgeCount() - 1; edge >= 0; edge--) {
+                Graph candidate = withoutEdge(current, edge);
+                if (check(candidate, encoding, preserveOrder) != null) {
+                    current = candidate;
+                    changed = true;
+                }
+            }
+            for (int vert = current.getVertexCount() - 1; vert >= 0; vert--) {
+                Graph candidate = withoutVertex(current, vert);
+                if (candidate != null && check(candidate, encoding, preserveOrder) != null) {
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @param graph a {@link Graph} object
+     * @param edge index of the edge which will be removed
+     * @return a copy of the graph without the edge
+     */
+    private static Graph withoutEdge(Graph graph, int edge) {
+        int edgeCount = graph.getEdgeCount() - 1;
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        for (int i = 0, j = 0; i <= edgeCount; i++) {
+            if (i == edge)
+                continue;
+            sources[j] = graph.getEdgeSource(i);
+            targets[j++] = graph.getEdgeTarget(i);
+        }
+        return new Graph(range(graph.getVertexCount()), sources, targets);
+    }
+
+    /**
+     * @param graph a {@link Graph} object with the vertices 0 to n - 1
+     * @param vert vertex which will be removed
+     * @return a copy of the graph without the vertex, the larger vertices are decremented,
+     * or null if the vertex has edges
+     */
+    private static Graph withoutVertex(Graph graph, int vert) {
+        int[] sources = new int[graph.getEdgeCount()];
+        int[] targets = new int[graph.getEdgeCount()];
+        for (int i = 0; i < sources.length; i++) {
+            int source = graph.getEdgeSource(i), target = graph.getEdgeTarget(i);
+            if (source == vert || target == vert)
+                return null;
+            sources[i] = source > vert ? source - 1 : source;
+            targets[i] = target > vert ? target - 1 : target;
+        }
+        return new Graph(range(graph.getVertexCount() - 1), sources, targets);
+    }
+
+    /**
+     * @param count count of vertices
+     * @return the vertices 0 to count - 1
+     */
+    private static int[] range(int count) {
+        int[] vertices = new int[count];
+        for (int i = 0; i < count; i++) {
+            vertices[i] = i;
+        }
+        return vertices;
+    }
+
+    /**
+     * A graph which did not survive the round trip.
+     */
+    public static class Failure {
+        private final GraphEncoding encoding;
+        private final boolean preserveOrder;
+        private final long seed;
+        private final int sizeLimit;
+        private final int maxVertices;
+        private final Graph graph;
+        private final Graph minimalGraph;
+        private final String message;
+
+        /**
+         * @param encoding the failing encoding
+         * @param preserveOrder the failing order option
+         * @param seed seed of the graph
+         * @param sizeLimit size limit the graph was created with
+         * @param maxVertices maximal count of vertices of the run the graph was created with
+         * @param graph the failing graph
+         * @param minimalGraph the shrunk graph
+         * @param message description of the error of the shrunk graph
+         */
+        private Failure(GraphEncoding encoding, boolean preserveOrder, long seed, int sizeLimit, int maxVertices,
+                        Graph graph, Graph minimalGraph, String message) {
+            this.encoding = encoding;
+            this.preserveOrder = preserveOrder;
+            this.seed = seed;
+            this.sizeLimit = sizeLimit;
+            this.maxVertices = maxVertices;
+            this.graph = graph;
+            this.minimalGraph = minimalGraph;
+            this.message = message;
+        }
+
+        /**
+         * @return the failing encoding
+         */
+        public GraphEncoding getEncoding() {
+            return encoding;
+        }
+
+        /**
+         * @return the failing order option
+         */
+        public boolean isOrderPreserved() {
+            return preserveOrder;
+        }
+
+        /**
+         * @return seed of the graph, see {@link RoundTripVerifier#createGraph(long, int, int)}
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return size limit the graph was created with
+         */
+        public int getSizeLimit() {
+            return sizeLimit;
+        }
+
+        /**
+         * @return maximal count of vertices of the run the graph was created with
+         */
+        public int getMaxVertices() {
+            return maxVertices;
+        }
+
+        /**
+         * @return the failing graph
+         */
+        public Graph getGraph() {
+            return graph;
+        }
+
+        /**
+         * @return the smallest failing graph found by removing edges and vertices
+         */
+        public Graph getMinimalGraph() {
+            return minimalGraph;
+        }
+
+        /**
+         * @return description of the error of the minimal graph
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return encoding.getClass().getSimpleName() + " preserveOrder=" + preserveOrder + " seed=" + seed
+                    + " sizeLimit=" + sizeLimit + " maxVertices=" + maxVertices + " minimal graph " + minimalGraph
+                    + ": " + message;
+        }
+    }
+
+    /**
+     * Result of a verification run.
+     */
+    public static class Report {
+        private final long graphCount;
+        private final long checkCount;
+        private final long failureCount;
+        private final List<Failure> failures;
+        private final long elapsedNanos;
+
+        /**
+         * @param graphCount count of verified graphs
+         * @param checkCount count of round trips
+         * @param failureCount count of failed round trips
+         * @param failures the first failed round trips sorted by seed
+         * @param elapsedNanos duration of the run
+         */
+        private Report(long graphCount, long checkCount, long failureCount, List<Failure> failures,
+                       long elapsedNanos) {
+            this.graphCount = graphCount;
+            this.checkCount = checkCount;
+            this.failureCount = failureCount;
+            this.failures = Collections.unmodifiableList(failures);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return count of verified graphs
+         */
+        public long getGraphCount() {
+            return graphCount;
+        }
+
+        /**
+         * @return count of round trips (graphs times encodings times 2 order options)
+         */
+        public long getCheckCount() {
+            return checkCount;
+        }
+
+        /**
+         * @return count of failed round trips
+         */
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        /**
+         * @return the first 100 failed round trips sorted by seed
+         */
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return true if every round trip succeeded
+         */
+        public boolean isSuccess() {
+            return failureCount == 0;
+        }
+
+        /**
+         * @return duration of the run in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return verified graphs per second
+         */
+        public double getGraphsPerSecond() {
+            return elapsedNanos == 0 ? 0 : graphCount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(graphCount).append(" graphs, ").append(checkCount).append(" round trips, ")
+                    .append(failureCount).append(" failures, ")
+                    .append(Math.round(getGraphsPerSecond())).append(" graphs/s");
+            for (Failure failure : failures) {
+                sb.append('\n').append(failure);
+            }
+            return sb.toString();
+        }
+    }
+}
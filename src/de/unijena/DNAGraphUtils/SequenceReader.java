@@ -0,0 +1,185 @@
+package de.unijena.DNAGraphUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a sequence character by character from a {@link Reader}.
+ * Only a buffer of fixed size is held in memory, which also limits how far ahead can be peeked.
+ */
+class SequenceReader {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean isExhausted;
+
+    /**
+     * @param in reader the sequence will be read from, it is not closed
+     */
+    SequenceReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next character without consuming it or -1 at the end of the sequence
+     * @throws IOException if the reader throws
+     */
+    int peek() throws IOException {
+        return peek(0);
+    }
+
+    /**
+     * @param offset count of characters to look ahead, must be smaller than the buffer size
+     * @return the character at the offset without consuming anything or -1 if the sequence ends before
+     * @throws IOException if the reader throws
+     */
+    int peek(int offset) throws IOException {
+        if (position + offset >= limit && !fill(offset + 1))
+            return -1;
+        return buffer[position + offset];
+    }
+
+    /**
+     * @return the next character or -1 at the end of the sequence
+     * @throws IOException if the reader throws
+     */
+    int read() throws IOException {
+        if (position >= limit && !fill(1))
+            return -1;
+        return buffer[position++];
+    }
+
+    /**
+     * @return true if there is at least one more character
+     * @throws IOException if the reader throws
+     */
+    boolean hasNext() throws IOException {
+        return peek() >= 0;
+    }
+
+    /**
+     * Consumes the next character, which must be the expected one.
+     *
+     * @param expected expected character
+     * @throws IOException if the reader throws
+     */
+    void expect(char expected) throws IOException {
+        int c = read();
+        if (c != expected)
+            throw new IllegalArgumentException("Expected '" + expected + "' but found "
+                    + (c < 0 ? "end of sequence" : "'" + (char) c + "'"));
+    }
+
+    /**
+     * Reads a number written with a fixed count of DNA bases, see {@link DNAHelper#writeDNA(int, int, int, char[], int)}.
+     *
+     * @param radix count of DNA bases that were used
+     * @param length count of DNA bases to read
+     * @return decoded number
+     * @throws IOException if the reader throws
+     */
+    int readDNA(int radix, int length) throws IOException {
+        long number = 0;
+        for (int i = 0; i < length; i++) {
+            int c = read();
+            if (c < 0)
+                throw new IllegalArgumentException("Unexpected end of sequence");
+            int digit = DnaSequence.toDigit(c);
+            if (digit < 0 || digit >= radix)
+                throw new NumberFormatException("Invalid base '" + (char) c + "' for radix " + radix);
+            number = checkRange(number * radix + digit);
+        }
+        return (int) number;
+    }
+
+    /**
+     * Reads a number written with a variable count of DNA bases, see {@link DNAHelper#writeDNA(int, int, char[], int)}.
+     * Reading stops before the first character which is not a digit of the radix, e.g. the delimiter T in radix 3.
+     *
+     * @param radix count of DNA bases that were used
+     * @return decoded number
+     * @throws IOException if the reader throws
+     */
+    int readDNA(int radix) throws IOException {
+        long number = 0;
+        int length = 0;
+        int digit;
+        while ((digit = DnaSequence.toDigit(peek())) >= 0 && digit < radix) {
+            position++;
+            length++;
+            number = checkRange(number * radix + digit);
+        }
+        if (length == 0)
+            throw new NumberFormatException("Missing number");
+        return (int) number;
+    }
+
+    /**
+     * Decodes the next bases as number in radix 4 without consuming them.
+     *
+     * @param length count of bases, must be smaller than the buffer size and at most 15
+     * @return the decoded number or -1 if the sequence ends before or contains a character which is no base
+     * @throws IOException if the reader throws
+     */
+    int peekDNA(int length) throws IOException {
+        if (position + length > limit && !fill(length))
+            return -1;
+        int number = 0;
+        for (int i = position; i < position + length; i++) {
+            int digit = DnaSequence.toDigit(buffer[i]);
+            if (digit < 0)
+                return -1;
+            number = number << 2 | digit;
+        }
+        return number;
+    }
+
+    /**
+     * Consumes characters which were already peeked.
+     *
+     * @param count count of characters, at most the count of available characters
+     */
+    void skip(int count) {
+        if (position + count > limit)
+            throw new IllegalStateException("Cannot skip characters which were not peeked");
+        position += count;
+    }
+
+    /**
+     * @param number decoded number
+     * @return the number if it fits into an int
+     */
+    private static long checkRange(long number) {
+        if (number > Integer.MAX_VALUE)
+            throw new NumberFormatException("Number too large");
+        return number;
+    }
+
+    /**
+     * Moves the remaining characters to the front of the buffer and reads until enough characters are available.
+     *
+     * @param required count of characters that should be available
+     * @return true if at least the required count of characters is available
+     * @throws IOException if the reader throws
+     */
+    private boolean fill(int required) throws IOException {
+        if (required > buffer.length)
+            throw new IllegalArgumentException("Cannot look ahead further than " + buffer.length + " characters");
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        while (limit < required && !isExhausted) {
+            int count = in.read(buffer, limit, buffer.length - limit);
+            if (count < 0)
+                isExhausted = true;
+            else
+                limit += count;
+        }
+        return limit >= required;
+    }
+}
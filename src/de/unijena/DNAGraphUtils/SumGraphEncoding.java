@@ -1,8 +1,8 @@
 package de.unijena.DNAGraphUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
 
 /**
  * Implements {@link GraphEncoding} interface.
@@ -13,163 +13,132 @@ public class SumGraphEncoding implements GraphEncoding {
     final static int charATranslation = 1, charCTranslation = 2, charGTranslation = 5;
 
     /**
-     * Extracts all vertices from edges into a list.
+     * Numbers the vertices with edges in the order of their first occurrence in the edges.
      *
-     * @param edges contains the edge pairs of a {@link Graph}
-     * @return list of vertices of the graph that have edges
+     * @param graph a {@link Graph} object
+     * @return number of every vertex with edges (0, 1, 2,...) or -1, the index is the position of the vertex
      */
-    private static ArrayList<Integer> getVerticesWithEdges(ArrayList<Pair<Integer, Integer>> edges) {
-        ArrayList<Integer> vertices = new ArrayList<>();
-
-        for (Pair<Integer, Integer> edge : edges) {
-            int first = edge.getV1();
-            int second = edge.getV2();
-
-            if(!vertices.contains(first)){
-                vertices.add(first);
+    private static int[] numberVerticesWithEdges(Graph graph) {
+        int[] vertNumbers = new int[graph.getVertexCount()];
+        Arrays.fill(vertNumbers, -1);
+        int nextNumber = 0;
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            int first = getPosition(graph, graph.getEdgeSource(i));
+            int second = getPosition(graph, graph.getEdgeTarget(i));
+
+            if (vertNumbers[first] < 0) {
+                vertNumbers[first] = nextNumber++;
             }
-            if (!vertices.contains(second)){
-                vertices.add(second);
+            if (vertNumbers[second] < 0) {
+                vertNumbers[second] = nextNumber++;
             }
         }
-        return vertices;
+        return vertNumbers;
     }
 
     /**
-     * Fills the dictionary with all vertices and their translation (numbers -> 0, 1, 2,...).
-     *
-     * @param vertices the vertices of a {@link Graph}
-     * @param DNAVertices dictionary that translations will be put into
+     * @param graph a {@link Graph} object
+     * @param vert vertex of an edge
+     * @return position of the vertex in the graph
      */
-    private static void createDictionary(ArrayList<Integer> vertices, Map<Integer, String> DNAVertices){
-        for (Integer vert : vertices) {
-            String vertString = getDNAString(vert + 1);
-
-            DNAVertices.put(vert, vertString);
-        }
+    private static int getPosition(Graph graph, int vert) {
+        int position = graph.getVertexPosition(vert);
+        if (position < 0)
+            throw new IllegalArgumentException("Edge contains vertex " + vert + " which is not in the graph");
+        return position;
     }
 
     /**
-     * Converts a number to a string with the chars: "A" = 1, "C" = 2 and "G" = 3.
+     * Appends a number with the chars: "A" = 1, "C" = 2 and "G" = 5.
+     * The shortest sequence is as many G's as possible, then as many C's as possible for the remainder
+     * and an A if the remainder is odd.
      *
      * @param vertNumber the designation number of a vert
-     * @return the vert number as DNA string
+     * @param out buffer the vert number as DNA string will be appended to
+     * @throws IOException if the output throws
      */
-    private static String getDNAString(int vertNumber) {
-        StringBuilder vertString = new StringBuilder();
-
-        while (vertNumber != 0) {
-            if (vertNumber - charGTranslation >= 0) {
-                vertNumber -= charGTranslation;
-                vertString.append("G");
-            } else if (vertNumber - charCTranslation >= 0) {
-                vertNumber -= charCTranslation;
-                vertString.append("C");
-            } else {
-                vertNumber -= charATranslation;
-                vertString.append("A");
-            }
-        }
-        return vertString.toString();
+    private static void appendDNAString(int vertNumber, DNABuffer out) throws IOException {
+        int remainder = vertNumber % charGTranslation;
+        out.append('G', vertNumber / charGTranslation);
+        out.append('C', remainder / charCTranslation);
+        if (remainder % charCTranslation == charATranslation)
+            out.append('A');
     }
 
     /**
      * Encodes a graph into a DNA sequence while maintaining the order.
      *
      * @param graph a {@link Graph} object
-     * @return graph encoded as DNA sequence
+     * @param DNASequence buffer the graph encoded as DNA sequence will be appended to
+     * @throws IOException if the output throws
      */
-    private static String convertToDNASequence(Graph graph){
-        Map<Integer, String> DNAVertices = new HashMap<>();
-        ArrayList<Integer> vertices = graph.getVertices();
-        ArrayList<Pair<Integer, Integer>> edges = graph.getEdges();
-        StringBuilder DNASequence = new StringBuilder();
-
-        ArrayList<Integer> verticesWithEdges = getVerticesWithEdges(graph.getEdges());
-
-        createDictionary(verticesWithEdges, DNAVertices);
-
-        DNASequence.append(getDNAString(vertices.size()));
-        DNASequence.append("T");
-
-        for (Pair<Integer, Integer> edge : edges) {
-            DNASequence.append(DNAVertices.get(edge.getV1()));
-            DNASequence.append("T");
-            DNASequence.append(DNAVertices.get(edge.getV2()));
-            DNASequence.append("T");
+    private static void writeDNASequence(Graph graph, DNABuffer DNASequence) throws IOException {
+        appendDNAString(graph.getVertexCount(), DNASequence);
+        DNASequence.append('T');
+
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            appendDNAString(graph.getEdgeSource(i) + 1, DNASequence);
+            DNASequence.append('T');
+            appendDNAString(graph.getEdgeTarget(i) + 1, DNASequence);
+            DNASequence.append('T');
         }
-
-        return DNASequence.toString();
     }
 
     /**
      * Encodes a graph into a DNA sequence without preserving the order.
      *
      * @param graph a {@link Graph} object
-     * @return graph encoded as DNA sequence
+     * @param DNASequence buffer the graph encoded as DNA sequence will be appended to
+     * @throws IOException if the output throws
      */
-    private static String convertToDNASequenceWithoutUnusedVerts(Graph graph){
-        Map<Integer, String> DNAVertices = new HashMap<>();
-        Map<Integer, Integer> vertsNumWithoutUnusedVerts = new HashMap<>();
-        ArrayList<Integer> vertices = graph.getVertices();
-        ArrayList<Pair<Integer, Integer>> edges = graph.getEdges();
-        StringBuilder DNASequence = new StringBuilder();
-
-        ArrayList<Integer> verticesWithEdges = getVerticesWithEdges(graph.getEdges());
-
-        for (int i = 0; i < verticesWithEdges.size(); i++) {
-            vertsNumWithoutUnusedVerts.put(verticesWithEdges.get(i), i);
-        }
-
-        for (int i = 0; i < verticesWithEdges.size(); i++) {
-            verticesWithEdges.set(i, vertsNumWithoutUnusedVerts.get(verticesWithEdges.get(i)));
-        }
-
-        createDictionary(verticesWithEdges, DNAVertices);
+    private static void writeDNASequenceWithoutUnusedVerts(Graph graph, DNABuffer DNASequence) throws IOException {
+        int[] vertNumbers = numberVerticesWithEdges(graph);
 
-        DNASequence.append(getDNAString(vertices.size()));
-        DNASequence.append("T");
+        appendDNAString(graph.getVertexCount(), DNASequence);
+        DNASequence.append('T');
 
-        for (Pair<Integer, Integer> edge : edges) {
-            DNASequence.append(DNAVertices.get(vertsNumWithoutUnusedVerts.get(edge.getV1())));
-            DNASequence.append("T");
-            DNASequence.append(DNAVertices.get(vertsNumWithoutUnusedVerts.get(edge.getV2())));
-            DNASequence.append("T");
+        for (int i = 0; i < graph.getEdgeCount(); i++) {
+            appendDNAString(vertNumbers[graph.getVertexPosition(graph.getEdgeSource(i))] + 1, DNASequence);
+            DNASequence.append('T');
+            appendDNAString(vertNumbers[graph.getVertexPosition(graph.getEdgeTarget(i))] + 1, DNASequence);
+            DNASequence.append('T');
         }
-
-        return DNASequence.toString();
     }
 
     /**
-     * Implements {@link GraphEncoding#toString(Graph, boolean)}.
+     * Implements {@link GraphEncoding#write(Graph, boolean, Appendable)}.
      */
-    public String toString(Graph graph, boolean preserveOrder) {
+    public void write(Graph graph, boolean preserveOrder, Appendable out) throws IOException {
+        DNABuffer buffer = new DNABuffer(out);
         if (preserveOrder){
-            return convertToDNASequence(graph);
+            writeDNASequence(graph, buffer);
         }
         else
-            return convertToDNASequenceWithoutUnusedVerts(graph);
+            writeDNASequenceWithoutUnusedVerts(graph, buffer);
+        buffer.flush();
     }
 
     /**
-     * Converts DNA sequence string to a integer.
+     * Reads the DNA sequence of a vert up to the next delimiter T (or the end) and converts it to a integer.
      * Converts the chars "A" to 1, "C" to 2 and "G" to 3.
      * Then sums up all values.
      *
-     * @param vert the DNA sequence of a vert
+     * @param reader sequence which will be read from, afterwards it is positioned behind the delimiter
      * @return the calculated integer for the vert
+     * @throws IOException if the reader throws
      */
-    private static int DNASequenceToInt(String vert){
+    private static int readVert(SequenceReader reader) throws IOException {
         int vertNum = 0;
+        int c;
 
-        for (char s : vert.toCharArray()) {
-            if(s == 'A'){
+        while ((c = reader.read()) >= 0 && c != 'T') {
+            if(c == 'A'){
                 vertNum += charATranslation;
             }
-            else if(s == 'C'){
+            else if(c == 'C'){
                 vertNum += charCTranslation;
             }
-            else if(s == 'G'){
+            else if(c == 'G'){
                 vertNum += charGTranslation;
             }
         }
@@ -178,50 +147,26 @@ public class SumGraphEncoding implements GraphEncoding {
     }
 
     /**
-     * Converts the DNA sequences of the vertices to numbers.
-     * Adds vertices that have an edge together as pair into list.
-     *
-     * @param verticesOfEdges contains all vertices of a graph (as DNA sequences) that have edges
-     * @param edges contain all edge of a graph
-     */
-    private static void convertEdgesToList(String[] verticesOfEdges, ArrayList<Pair<Integer, Integer>> edges){
-        for (int i = 0; i < verticesOfEdges.length; i += 2) {
-            String firstVert = verticesOfEdges[i], secondVert = verticesOfEdges[i+1];
-
-            edges.add(new Pair<>(DNASequenceToInt(firstVert), DNASequenceToInt(secondVert)));
-        }
-    }
-
-    /**
-     * Implements {@link GraphEncoding#load(Graph, String)}
+     * Implements {@link GraphEncoding#load(Graph, Reader)}
      */
-    public void load(Graph graph, String repr) {
-        ArrayList<Integer> vertices = new ArrayList<>();
-        ArrayList<Pair<Integer,Integer>> edges = new ArrayList<>();
-
-        String[] splitString = repr.split("T", 2);
-        String[] verticesOfEdges = splitString[1].split("T");
-        String vertNumString = splitString[0];
-
-        if(verticesOfEdges.length > 1) {
-            convertEdgesToList(verticesOfEdges, edges);
-        }
-
-        int vertNum = DNASequenceToInt(vertNumString);
+    public void load(Graph graph, Reader in) throws IOException {
+        SequenceReader reader = new SequenceReader(in);
+        int vertNum = readVert(reader);
+        int[] vertices = new int[vertNum];
 
-        for (int i = 1; i <= vertNum; i++) {
-            vertices.add(i);
-        }
-
-        for (int i = 0; i < vertices.size(); i++) {
-            vertices.set(i, vertices.get(i) - 1);
-        }
-        for (int i = 0; i < edges.size(); i++) {
-            Pair<Integer,Integer> edge = edges.get(i);
-            edges.set(i, new Pair<>(edge.getV1() - 1, edge.getV2() - 1));
+        for (int i = 0; i < vertNum; i++) {
+            vertices[i] = i;
         }
 
         graph.setVertices(vertices);
-        graph.setEdges(edges);
+        graph.setEdges(new int[0], new int[0]);
+
+        while (reader.hasNext()) {
+            int source = readVert(reader) - 1;
+            // a single vert at the end does not form an edge
+            if (!reader.hasNext())
+                break;
+            graph.addEdge(source, readVert(reader) - 1);
+        }
     }
 }